@@ -0,0 +1,160 @@
+/*
+Long-running host for the programs included in this repository.
+
+The host opens the Bio4j database once, with all the graph managers wired, and then keeps polling a queue folder for
+executions files _(same format as `executions.xml`)_. Every file found is run against the shared, warm database: the
+tools get their graph handlers through Bio4jGraph, which hands them the instance already opened by the host instead
+of opening BerkeleyJE again, so jobs start right away instead of paying the opening and cold-cache costs every time.
+
+Queued files are processed one at a time in name order. A file is renamed to `<name>.running` while its executions
+run and then moved to the `done` or `failed` subfolder of the queue folder. The executions of every file are run by
+the ParallelExecutionScheduler, so independent executions run concurrently when their `<inputs>` and `<outputs>` are
+declared, and executions following a failed one are skipped. Creating a file named `STOP` in the queue folder makes the host close the database and exit
+once the current file has been processed.
+
+Since the tools only read the database, the host is best started with `-Dbio4j.preset=read_only` _(see
+Bio4jSessionFactory)_: concurrent executions then read with storage transactions disabled and cannot write to the
+database by mistake. The DB folder stays locked by the host for its whole lifetime, so no other JVM can open it in the
+meantime: queue the executions in the host instead.
+
+The program expects the following parameters:
+
+1. Bio4j DB folder _(or Titan properties file)_
+2. Queue folder
+3. Polling interval in seconds _(optional, 5 by default)_
+4. Number of executions run at the same time _(optional, 1 by default)_
+
+ */
+package com.bio4j.examples;
+
+import com.bio4j.examples.util.Bio4jGraph;
+import com.era7.bioinfo.bioinfoutil.Executable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class Bio4jExecutionHost implements Executable{
+
+	public static final String EXECUTIONS_FILE_SUFFIX = ".xml";
+	public static final String RUNNING_SUFFIX = ".running";
+	public static final String DONE_FOLDER = "done";
+	public static final String FAILED_FOLDER = "failed";
+	public static final String STOP_FILE = "STOP";
+	public static final int DEFAULT_POLLING_INTERVAL_SECONDS = 5;
+	public static final int DEFAULT_NUMBER_OF_THREADS = 1;
+
+	@Override
+	public void execute(ArrayList<String> array) {
+		String[] args = new String[array.size()];
+		for (int i = 0; i < array.size(); i++) {
+			args[i] = array.get(i);
+		}
+		main(args);
+	}
+
+	public static void main(String[] args){
+
+		if (args.length < 2 || args.length > 4) {
+			System.out.println("This program expects the following parameters:\n"
+					+ "1. Bio4j DB folder (or Titan properties file)\n"
+					+ "2. Queue folder\n"
+					+ "3. Polling interval in seconds (optional, 5 by default)\n"
+					+ "4. Number of executions run at the same time (optional, 1 by default)");
+		} else {
+
+			String dbFolder = args[0];
+			File queueFolder = new File(args[1]);
+			int pollingIntervalSeconds = DEFAULT_POLLING_INTERVAL_SECONDS;
+			int numberOfThreads = DEFAULT_NUMBER_OF_THREADS;
+			if(args.length >= 3){
+				pollingIntervalSeconds = Integer.parseInt(args[2]);
+			}
+			if(args.length == 4){
+				numberOfThreads = Integer.parseInt(args[3]);
+			}
+			ParallelExecutionScheduler scheduler = new ParallelExecutionScheduler(numberOfThreads);
+
+			File doneFolder = new File(queueFolder, DONE_FOLDER);
+			File failedFolder = new File(queueFolder, FAILED_FOLDER);
+			File stopFile = new File(queueFolder, STOP_FILE);
+			if((!doneFolder.isDirectory() && !doneFolder.mkdirs()) || (!failedFolder.isDirectory() && !failedFolder.mkdirs())){
+				System.out.println("The queue folder " + queueFolder.getAbsolutePath() + " could not be prepared... :|");
+				return;
+			}
+
+			//----the host keeps one reference to the database for its whole lifetime----
+			Bio4jGraph bio4jGraph = Bio4jGraph.acquire(dbFolder);
+
+			System.out.println("Waiting for executions files in " + queueFolder.getAbsolutePath() + " ...");
+
+			try{
+
+				while(!stopFile.exists()){
+
+					File executionsFile = nextExecutionsFile(queueFolder);
+					if(executionsFile == null){
+						Thread.sleep(pollingIntervalSeconds * 1000L);
+					}else{
+						runExecutionsFile(executionsFile, scheduler, bio4jGraph, doneFolder, failedFolder);
+					}
+				}
+
+				if(!stopFile.delete()){
+					System.out.println("The file " + stopFile.getAbsolutePath() + " could not be removed");
+				}
+
+			}catch(InterruptedException e){
+				e.printStackTrace();
+			}finally{
+				bio4jGraph.release();
+			}
+
+			System.out.println("Done ;)");
+		}
+	}
+
+	private static File nextExecutionsFile(File queueFolder){
+
+		File[] executionsFiles = queueFolder.listFiles((dir, name) -> name.endsWith(EXECUTIONS_FILE_SUFFIX));
+		if(executionsFiles == null || executionsFiles.length == 0){
+			return null;
+		}
+		Arrays.sort(executionsFiles);
+		return executionsFiles[0];
+	}
+
+	private static void runExecutionsFile(File executionsFile, ParallelExecutionScheduler scheduler, Bio4jGraph bio4jGraph, File doneFolder, File failedFolder) throws InterruptedException {
+
+		String fileName = executionsFile.getName();
+		File runningFile = new File(executionsFile.getPath() + RUNNING_SUFFIX);
+		if(!executionsFile.renameTo(runningFile)){
+			System.out.println("The executions file " + fileName + " could not be claimed, skipping it...");
+			return;
+		}
+
+		System.out.println("Running " + fileName + "...");
+		long start = System.currentTimeMillis();
+		boolean succeeded;
+
+		try{
+			succeeded = scheduler.run(ScheduledExecution.parse(runningFile));
+		}catch(IOException | IllegalArgumentException e){
+			succeeded = false;
+			e.printStackTrace();
+		}
+
+		File destinationFolder = succeeded ? doneFolder : failedFolder;
+		try{
+			Files.move(runningFile.toPath(), new File(destinationFolder, fileName).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}catch(IOException e){
+			e.printStackTrace();
+		}
+
+		System.out.println(fileName + (succeeded ? " done" : " failed") + " in " + (System.currentTimeMillis() - start) + " ms");
+		bio4jGraph.printCacheStats();
+	}
+}
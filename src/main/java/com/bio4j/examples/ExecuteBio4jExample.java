@@ -2,11 +2,20 @@
 This class is used as a bundle of all the programs included in this repository.
 By means of the Executable interface, any program could be run using the generated jar file `ExecuteBio4jExample.jar` plus the respective
 `executions.xml` file.
+Every program opens the database itself; to run many of them against the same warm database, queue their executions
+files in a Bio4jExecutionHost instead.
+
+When a number of threads is provided after the executions file, the executions are run by the ParallelExecutionScheduler
+following the `<inputs>` and `<outputs>` declared for them, instead of one after the other. The program then exits
+with a non-zero status when any execution failed or was skipped.
  */
 package com.bio4j.examples;
 
 import com.era7.bioinfo.bioinfoutil.ExecuteFromFile;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * Created by ppareja on 2/10/2015.
  */
@@ -14,7 +23,25 @@ public class ExecuteBio4jExample {
 
 	public static void main(String[] args){
 
-		ExecuteFromFile.main(args);
+		if(args.length == 2){
+
+			File executionsFile = new File(args[0]);
+			int numberOfThreads = Integer.parseInt(args[1]);
+
+			boolean succeeded = false;
+			try{
+				succeeded = new ParallelExecutionScheduler(numberOfThreads).run(ScheduledExecution.parse(executionsFile));
+			}catch(IOException | InterruptedException | IllegalArgumentException e){
+				e.printStackTrace();
+			}
+
+			if(!succeeded){
+				System.exit(1);
+			}
+
+		}else{
+			ExecuteFromFile.main(args);
+		}
 
 	}
 }
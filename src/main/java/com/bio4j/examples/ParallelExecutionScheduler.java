@@ -0,0 +1,233 @@
+/*
+Runs the executions of an executions file concurrently on a bounded thread pool, following the dependencies declared
+through their `<inputs>` and `<outputs>`.
+
+An execution depends on every other execution declaring as output one of its inputs, and it is started as soon as
+all of them have finished and all its input files exist. Executions with no dependencies between them run in parallel.
+When an execution fails _(its program throws an exception, see ExecutionFailedException)_, or one of its input files is
+missing when it should start, every execution depending on it directly or indirectly is skipped; the rest go on.
+
+Files with no `<inputs>` or `<outputs>` declared at all are run sequentially in document order, like ExecuteFromFile
+does. Executions running at the same time on the same Bio4j database share it through Bio4jGraph.
+
+ */
+package com.bio4j.examples;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ParallelExecutionScheduler {
+
+	private final int numberOfThreads;
+
+	public ParallelExecutionScheduler(int numberOfThreads){
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * @return true when all the executions finished successfully
+	 */
+	public boolean run(List<ScheduledExecution> executions) throws InterruptedException {
+
+		int size = executions.size();
+		List<List<Integer>> dependents = dependencies(executions);
+
+		int[] pendingDependencies = new int[size];
+		for (List<Integer> executionDependents : dependents){
+			for (int dependent : executionDependents){
+				pendingDependencies[dependent]++;
+			}
+		}
+		checkForCycles(executions, dependents, pendingDependencies);
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+		boolean[] skipped = new boolean[size];
+		Deque<Integer> ready = new ArrayDeque<>();
+		int running = 0;
+		int failed = 0;
+
+		for (int i = 0; i < size; i++) {
+			if(pendingDependencies[i] == 0){
+				ready.add(i);
+			}
+		}
+
+		try{
+
+			while(!ready.isEmpty() || running > 0){
+
+				//----starting every execution whose dependencies have finished----
+				while(!ready.isEmpty()){
+					int next = ready.poll();
+					String missingInput = missingInput(executions.get(next));
+					if(missingInput == null){
+						submit(next, executions, completionService);
+						running++;
+					}else{
+						System.out.println("Skipping " + executions.get(next) + " since its input " + missingInput + " does not exist");
+						skipped[next] = true;
+						failed++;
+						failed += skipDependents(next, executions, dependents, skipped);
+					}
+				}
+				if(running == 0){
+					break;
+				}
+
+				int result;
+				try{
+					result = completionService.take().get();
+				}catch(ExecutionException e){
+					//----submitted tasks catch everything, so this should never happen----
+					throw new IllegalStateException(e.getCause());
+				}
+				running--;
+
+				if(result < 0){
+					failed++;
+					failed += skipDependents(-result - 1, executions, dependents, skipped);
+				}else{
+					for (int dependent : dependents.get(result)){
+						if(--pendingDependencies[dependent] == 0 && !skipped[dependent]){
+							ready.add(dependent);
+						}
+					}
+				}
+			}
+
+		}finally{
+			executor.shutdownNow();
+		}
+
+		System.out.println((size - failed) + " executions finished successfully, " + failed + " failed or skipped");
+		return failed == 0;
+	}
+
+	/**
+	 * @return for every execution, the indexes of the executions depending on it
+	 */
+	private static List<List<Integer>> dependencies(List<ScheduledExecution> executions){
+
+		int size = executions.size();
+		List<List<Integer>> dependents = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			dependents.add(new ArrayList<>());
+		}
+
+		boolean declared = false;
+		Map<String, List<Integer>> producers = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			ScheduledExecution execution = executions.get(i);
+			declared |= !execution.inputs().isEmpty() || !execution.outputs().isEmpty();
+			for (String output : execution.outputs()){
+				producers.computeIfAbsent(normalizedPath(output), path -> new ArrayList<>()).add(i);
+			}
+		}
+
+		if(!declared){
+			//----nothing declared: every execution depends on the previous one----
+			for (int i = 1; i < size; i++) {
+				dependents.get(i - 1).add(i);
+			}
+			return dependents;
+		}
+
+		for (int i = 0; i < size; i++) {
+			Set<Integer> dependencies = new HashSet<>();
+			for (String input : executions.get(i).inputs()){
+				List<Integer> inputProducers = producers.get(normalizedPath(input));
+				if(inputProducers != null){
+					dependencies.addAll(inputProducers);
+				}
+			}
+			dependencies.remove(i);
+			for (int dependency : dependencies){
+				dependents.get(dependency).add(i);
+			}
+		}
+		return dependents;
+	}
+
+	private static void checkForCycles(List<ScheduledExecution> executions, List<List<Integer>> dependents, int[] pendingDependencies){
+
+		int[] pending = Arrays.copyOf(pendingDependencies, pendingDependencies.length);
+		Deque<Integer> ready = new ArrayDeque<>();
+		for (int i = 0; i < pending.length; i++) {
+			if(pending[i] == 0){
+				ready.add(i);
+			}
+		}
+		int sorted = 0;
+		while(!ready.isEmpty()){
+			int current = ready.poll();
+			sorted++;
+			for (int dependent : dependents.get(current)){
+				if(--pending[dependent] == 0){
+					ready.add(dependent);
+				}
+			}
+		}
+		if(sorted < pending.length){
+			for (int i = 0; i < pending.length; i++) {
+				if(pending[i] > 0){
+					throw new IllegalArgumentException("The inputs and outputs declared form a cycle, e.g. through " + executions.get(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Submits the execution provided; the task returns its index when it succeeds and -index - 1 when it fails.
+	 */
+	private static void submit(int index, List<ScheduledExecution> executions, CompletionService<Integer> completionService){
+
+		ScheduledExecution execution = executions.get(index);
+		completionService.submit(() -> {
+			System.out.println("Executing " + execution + "...");
+			long start = System.currentTimeMillis();
+			try{
+				execution.run();
+				System.out.println(execution.classFullName() + " finished in " + (System.currentTimeMillis() - start) + " ms");
+				return index;
+			}catch(Throwable e){
+				System.out.println(execution.classFullName() + " failed after " + (System.currentTimeMillis() - start) + " ms");
+				e.printStackTrace();
+				return -index - 1;
+			}
+		});
+	}
+
+	/**
+	 * @return number of executions newly skipped
+	 */
+	private static int skipDependents(int index, List<ScheduledExecution> executions, List<List<Integer>> dependents, boolean[] skipped){
+
+		int newlySkipped = 0;
+		Deque<Integer> stack = new ArrayDeque<>(dependents.get(index));
+		while(!stack.isEmpty()){
+			int current = stack.pop();
+			if(!skipped[current]){
+				skipped[current] = true;
+				newlySkipped++;
+				System.out.println("Skipping " + executions.get(current) + " since " + executions.get(index).classFullName() + " failed");
+				stack.addAll(dependents.get(current));
+			}
+		}
+		return newlySkipped;
+	}
+
+	private static String missingInput(ScheduledExecution execution){
+		for (String input : execution.inputs()){
+			if(!new File(input).exists()){
+				return input;
+			}
+		}
+		return null;
+	}
+
+	private static String normalizedPath(String path){
+		return new File(path).getAbsoluteFile().toPath().normalize().toString();
+	}
+}
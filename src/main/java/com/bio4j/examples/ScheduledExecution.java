@@ -0,0 +1,146 @@
+/*
+One `<execution>` element of an executions file _(see `executions.xml`)_: the full name of an Executable class plus
+its arguments, and optionally the files it reads and writes _(`<inputs>` and `<outputs>`)_, which the
+ParallelExecutionScheduler uses to order the executions.
+
+The file format is the one read by ExecuteFromFile, so that the same executions files can be run either by
+ExecuteBio4jExample or queued in a Bio4jExecutionHost.
+
+ */
+package com.bio4j.examples;
+
+import com.era7.bioinfo.bioinfoutil.Executable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ScheduledExecution {
+
+	public static final String EXECUTION_TAG = "execution";
+	public static final String CLASS_FULL_NAME_TAG = "class_full_name";
+	public static final String ARGUMENTS_TAG = "arguments";
+	public static final String ARGUMENT_TAG = "argument";
+	public static final String INPUTS_TAG = "inputs";
+	public static final String INPUT_TAG = "input";
+	public static final String OUTPUTS_TAG = "outputs";
+	public static final String OUTPUT_TAG = "output";
+
+	private final String classFullName;
+	private final ArrayList<String> arguments;
+	private final List<String> inputs;
+	private final List<String> outputs;
+
+	public ScheduledExecution(String classFullName, ArrayList<String> arguments){
+		this(classFullName, arguments, new ArrayList<>(), new ArrayList<>());
+	}
+
+	public ScheduledExecution(String classFullName, ArrayList<String> arguments, List<String> inputs, List<String> outputs){
+		this.classFullName = classFullName;
+		this.arguments = arguments;
+		this.inputs = inputs;
+		this.outputs = outputs;
+	}
+
+	/**
+	 * @return executions found in the file provided in document order _(commented out executions are skipped)_
+	 */
+	public static List<ScheduledExecution> parse(File executionsFile) throws IOException {
+
+		Document document;
+		try{
+			document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(executionsFile);
+		}catch(ParserConfigurationException | SAXException e){
+			throw new IOException("The executions file " + executionsFile.getName() + " could not be parsed: " + e.getMessage(), e);
+		}
+
+		List<ScheduledExecution> executions = new ArrayList<>();
+		NodeList executionElements = document.getDocumentElement().getElementsByTagName(EXECUTION_TAG);
+		for (int i = 0; i < executionElements.getLength(); i++) {
+
+			Element executionElement = (Element) executionElements.item(i);
+			String classFullName = childText(executionElement, CLASS_FULL_NAME_TAG);
+			if(classFullName == null || classFullName.isEmpty()){
+				throw new IOException("Execution " + (i + 1) + " of " + executionsFile.getName() + " has no " + CLASS_FULL_NAME_TAG);
+			}
+
+			ArrayList<String> arguments = childList(executionElement, ARGUMENTS_TAG, ARGUMENT_TAG);
+			List<String> inputs = childList(executionElement, INPUTS_TAG, INPUT_TAG);
+			List<String> outputs = childList(executionElement, OUTPUTS_TAG, OUTPUT_TAG);
+
+			executions.add(new ScheduledExecution(classFullName, arguments, inputs, outputs));
+		}
+		return executions;
+	}
+
+	public String classFullName(){
+		return classFullName;
+	}
+
+	public ArrayList<String> arguments(){
+		return arguments;
+	}
+
+	/**
+	 * @return files read by the execution, as declared in the executions file
+	 */
+	public List<String> inputs(){
+		return inputs;
+	}
+
+	/**
+	 * @return files written by the execution, as declared in the executions file
+	 */
+	public List<String> outputs(){
+		return outputs;
+	}
+
+	/**
+	 * Instantiates the Executable class and runs it with a copy of the arguments.
+	 */
+	public void run() throws ReflectiveOperationException {
+
+		Class<?> executableClass = Class.forName(classFullName);
+		if(!Executable.class.isAssignableFrom(executableClass)){
+			throw new ClassCastException(classFullName + " does not implement " + Executable.class.getName());
+		}
+		Executable executable = (Executable) executableClass.getConstructor().newInstance();
+		executable.execute(new ArrayList<>(arguments));
+	}
+
+	@Override
+	public String toString(){
+		return classFullName + " " + arguments;
+	}
+
+	private static String childText(Element element, String tagName){
+		for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if(child.getNodeType() == Node.ELEMENT_NODE && child.getNodeName().equals(tagName)){
+				return child.getTextContent().trim();
+			}
+		}
+		return null;
+	}
+
+	private static ArrayList<String> childList(Element element, String listTagName, String itemTagName){
+		ArrayList<String> items = new ArrayList<>();
+		for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if(child.getNodeType() == Node.ELEMENT_NODE && child.getNodeName().equals(listTagName)){
+				NodeList itemElements = ((Element) child).getElementsByTagName(itemTagName);
+				for (int i = 0; i < itemElements.getLength(); i++) {
+					items.add(itemElements.item(i).getTextContent().trim());
+				}
+				break;
+			}
+		}
+		return items;
+	}
+}
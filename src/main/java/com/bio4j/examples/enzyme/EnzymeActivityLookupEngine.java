@@ -0,0 +1,199 @@
+/*
+Lookup engine used to find the enzymatic activities _(ENZYME DB entries)_ of a list of UniProt accessions, such as a
+whole proteome.
+
+Accessions are read from the input in batches which are resolved concurrently by a pool of worker threads sharing the
+graph handlers; each worker reads through the transaction Titan binds to its thread, which is closed once its batch
+is done. Only a bounded number of batches are read ahead of the one being handed over, so the input is never loaded
+at once, and batch results are handed over by the calling thread in input order.
+When a Bloom filter over the protein accessions of the database is provided, accessions it rules out are skipped
+without querying the accession index.
+
+ */
+package com.bio4j.examples.enzyme;
+
+import com.bio4j.examples.util.BloomFilter;
+import com.bio4j.model.enzymedb.vertices.Enzyme;
+import com.bio4j.model.uniprot.vertices.Protein;
+import com.bio4j.titan.model.uniprot.TitanUniProtGraph;
+import com.bio4j.titan.util.DefaultTitanGraph;
+import com.thinkaurelius.titan.core.TitanEdge;
+import com.thinkaurelius.titan.core.TitanGraph;
+import com.thinkaurelius.titan.core.TitanVertex;
+import com.thinkaurelius.titan.core.schema.EdgeLabelMaker;
+import com.thinkaurelius.titan.core.schema.VertexLabelMaker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+public class EnzymeActivityLookupEngine {
+
+	public static final int DEFAULT_NUMBER_OF_THREADS = 1;
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	private final TitanGraph titanGraph;
+	private final TitanUniProtGraph titanUniProtGraph;
+	private final int numberOfThreads;
+	private final int batchSize;
+	private BloomFilter accessionFilter;
+
+	private final AtomicLong proteinsNotFound = new AtomicLong();
+	private final AtomicLong proteinsWithoutActivity = new AtomicLong();
+
+	/**
+	 * Enzymatic activity of a protein.
+	 */
+	public static class EnzymeActivity {
+
+		public final String accession;
+		public final String enzymeId;
+		public final String officialName;
+
+		public EnzymeActivity(String accession, String enzymeId, String officialName){
+			this.accession = accession;
+			this.enzymeId = enzymeId;
+			this.officialName = officialName;
+		}
+	}
+
+	public interface ActivityConsumer {
+		void accept(List<EnzymeActivity> activities) throws IOException;
+	}
+
+	public EnzymeActivityLookupEngine(TitanGraph titanGraph,
+	                                  TitanUniProtGraph titanUniProtGraph,
+	                                  int numberOfThreads,
+	                                  int batchSize){
+
+		if(numberOfThreads < 1){
+			throw new IllegalArgumentException("The number of threads must be at least 1: " + numberOfThreads);
+		}
+		if(batchSize < 1){
+			throw new IllegalArgumentException("The batch size must be at least 1: " + batchSize);
+		}
+
+		this.titanGraph = titanGraph;
+		this.titanUniProtGraph = titanUniProtGraph;
+		this.numberOfThreads = numberOfThreads;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @param accessionFilter Bloom filter over the protein accessions of the database, null for none
+	 */
+	public EnzymeActivityLookupEngine withAccessionFilter(BloomFilter accessionFilter){
+		this.accessionFilter = accessionFilter;
+		return this;
+	}
+
+	/**
+	 * Finds the enzymatic activities of the accessions read _(one per line)_, handing them over batch by batch.
+	 *
+	 * @return number of accessions processed
+	 */
+	public long lookup(BufferedReader accessionReader, ActivityConsumer activityConsumer) throws IOException, InterruptedException, ExecutionException {
+
+		long startTime = System.currentTimeMillis();
+		long accessionCounter = 0;
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+
+		try{
+
+			//----only a bounded number of batches are submitted ahead of the consumer----
+			Deque<Future<List<EnzymeActivity>>> pendingBatches = new ArrayDeque<>();
+			int maxPendingBatches = numberOfThreads * 2;
+
+			List<String> batch = new ArrayList<>(batchSize);
+			String line;
+			while((line = accessionReader.readLine()) != null){
+				String accession = line.trim();
+				if(accession.isEmpty()){
+					continue;
+				}
+				batch.add(accession);
+				accessionCounter++;
+				if(batch.size() == batchSize){
+					if(pendingBatches.size() >= maxPendingBatches){
+						activityConsumer.accept(pendingBatches.poll().get());
+					}
+					List<String> batchToSubmit = batch;
+					pendingBatches.add(executor.submit(() -> lookupBatch(batchToSubmit)));
+					batch = new ArrayList<>(batchSize);
+				}
+			}
+			if(!batch.isEmpty()){
+				List<String> batchToSubmit = batch;
+				pendingBatches.add(executor.submit(() -> lookupBatch(batchToSubmit)));
+			}
+			while(!pendingBatches.isEmpty()){
+				activityConsumer.accept(pendingBatches.poll().get());
+			}
+
+		}finally{
+			executor.shutdownNow();
+		}
+
+		long elapsedTime = Math.max(1, System.currentTimeMillis() - startTime);
+		System.out.println(accessionCounter + " accessions processed in " + elapsedTime + " ms ("
+				+ (accessionCounter * 1000L / elapsedTime) + " accessions/s), " + proteinsNotFound.get() + " not found, "
+				+ proteinsWithoutActivity.get() + " without enzymatic activity");
+
+		return accessionCounter;
+	}
+
+	public long proteinsNotFound(){
+		return proteinsNotFound.get();
+	}
+
+	public long proteinsWithoutActivity(){
+		return proteinsWithoutActivity.get();
+	}
+
+	private List<EnzymeActivity> lookupBatch(List<String> batch){
+
+		List<EnzymeActivity> activities = new ArrayList<>();
+
+		try{
+
+			for (String accession : batch){
+
+				if(accessionFilter != null && !accessionFilter.mightContain(accession)){
+					proteinsNotFound.incrementAndGet();
+					continue;
+				}
+
+				Optional<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> proteinOptional = titanUniProtGraph.proteinAccessionIndex().getVertex(accession);
+				if(!proteinOptional.isPresent()){
+					proteinsNotFound.incrementAndGet();
+					if(accessionFilter != null){
+						accessionFilter.recordFalsePositive();
+					}
+					continue;
+				}
+
+				int activitiesBefore = activities.size();
+				Optional<Stream<Enzyme<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> enzymesOptionalStream = proteinOptional.get().enzymaticActivity_outV();
+				if(enzymesOptionalStream.isPresent()){
+					enzymesOptionalStream.get().forEach(enzyme -> activities.add(new EnzymeActivity(accession, enzyme.id(), enzyme.officialName())));
+				}
+				if(activities.size() == activitiesBefore){
+					proteinsWithoutActivity.incrementAndGet();
+				}
+			}
+
+		}finally{
+			//----the work done is read-only so the transaction bound to this thread is simply closed-----
+			titanGraph.rollback();
+		}
+
+		return activities;
+	}
+}
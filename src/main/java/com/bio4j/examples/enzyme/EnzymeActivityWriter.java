@@ -0,0 +1,159 @@
+/*
+Writer of the enzymatic activities found by EnzymeActivityLookupEngine, one line per protein and enzyme, either as
+TSV _(with a header line)_ or as JSON lines.
+
+Optionally, the reverse index _(enzyme -> proteins)_ is built while the activities are written and saved in the same
+format when the writer is finished, with one line per enzyme sorted by ID.
+
+The output is only complete once `finish` has been called. A writer closed without being finished _(because the lookup
+failed)_ deletes its output and writes no reverse index, so a partial result is never mistaken for a complete one.
+
+ */
+package com.bio4j.examples.enzyme;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class EnzymeActivityWriter implements EnzymeActivityLookupEngine.ActivityConsumer, Closeable {
+
+	public static final String TSV_FORMAT = "tsv";
+	public static final String JSON_LINES_FORMAT = "jsonl";
+
+	public static final String ACTIVITY_HEADER = "ACCESSION\tENZYME_ID\tOFFICIAL_NAME";
+	public static final String REVERSE_INDEX_HEADER = "ENZYME_ID\tOFFICIAL_NAME\tNUMBER_OF_PROTEINS\tPROTEIN_ACCESSIONS";
+
+	private final Gson gson = new Gson();
+	private final boolean jsonLines;
+	private final File outputFile;
+	private final BufferedWriter writer;
+	private final File reverseIndexFile;
+	private final Map<String, EnzymeProteins> reverseIndex = new TreeMap<>();
+	private long activitiesWritten = 0;
+	private boolean finished = false;
+
+	private static class EnzymeProteins {
+		final String officialName;
+		final List<String> accessions = new ArrayList<>();
+		EnzymeProteins(String officialName){
+			this.officialName = officialName;
+		}
+	}
+
+	/**
+	 * @param format tsv or jsonl
+	 * @param reverseIndexFile file the reverse index is saved to, null for none
+	 */
+	public EnzymeActivityWriter(File outputFile, String format, File reverseIndexFile) throws IOException {
+
+		if(!format.equals(TSV_FORMAT) && !format.equals(JSON_LINES_FORMAT)){
+			throw new IllegalArgumentException("Unknown format " + format + ", it must be one of: " + TSV_FORMAT + ", " + JSON_LINES_FORMAT);
+		}
+		this.jsonLines = format.equals(JSON_LINES_FORMAT);
+		this.outputFile = outputFile;
+		this.reverseIndexFile = reverseIndexFile;
+
+		this.writer = newWriter(outputFile);
+		if(!jsonLines){
+			writer.write(ACTIVITY_HEADER);
+			writer.newLine();
+		}
+	}
+
+	@Override
+	public void accept(List<EnzymeActivityLookupEngine.EnzymeActivity> activities) throws IOException {
+		for (EnzymeActivityLookupEngine.EnzymeActivity activity : activities){
+
+			if(jsonLines){
+				JsonObject jsonObject = new JsonObject();
+				jsonObject.addProperty("accession", activity.accession);
+				jsonObject.addProperty("enzyme_id", activity.enzymeId);
+				jsonObject.addProperty("official_name", activity.officialName);
+				writer.write(gson.toJson(jsonObject));
+			}else{
+				writer.write(activity.accession + "\t" + activity.enzymeId + "\t" + activity.officialName);
+			}
+			writer.newLine();
+			activitiesWritten++;
+
+			if(reverseIndexFile != null){
+				reverseIndex.computeIfAbsent(activity.enzymeId, enzymeId -> new EnzymeProteins(activity.officialName)).accessions.add(activity.accession);
+			}
+		}
+	}
+
+	public long activitiesWritten(){
+		return activitiesWritten;
+	}
+
+	public int numberOfEnzymes(){
+		return reverseIndex.size();
+	}
+
+	/**
+	 * Closes the output once all the activities have been written, and saves the reverse index if asked for.
+	 */
+	public void finish() throws IOException {
+
+		writer.close();
+
+		if(reverseIndexFile != null){
+			try (BufferedWriter reverseIndexWriter = newWriter(reverseIndexFile)){
+				if(!jsonLines){
+					reverseIndexWriter.write(REVERSE_INDEX_HEADER);
+					reverseIndexWriter.newLine();
+				}
+				for (Map.Entry<String, EnzymeProteins> entry : reverseIndex.entrySet()){
+					EnzymeProteins enzymeProteins = entry.getValue();
+					if(jsonLines){
+						JsonObject jsonObject = new JsonObject();
+						jsonObject.addProperty("enzyme_id", entry.getKey());
+						jsonObject.addProperty("official_name", enzymeProteins.officialName);
+						JsonArray accessions = new JsonArray();
+						for (String accession : enzymeProteins.accessions){
+							accessions.add(new JsonPrimitive(accession));
+						}
+						jsonObject.add("proteins", accessions);
+						reverseIndexWriter.write(gson.toJson(jsonObject));
+					}else{
+						reverseIndexWriter.write(entry.getKey() + "\t" + enzymeProteins.officialName + "\t"
+								+ enzymeProteins.accessions.size() + "\t" + String.join(",", enzymeProteins.accessions));
+					}
+					reverseIndexWriter.newLine();
+				}
+			}
+		}
+
+		finished = true;
+	}
+
+	/**
+	 * Does nothing more once the writer is finished; otherwise the incomplete output _(and reverse index)_ is deleted.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		if(!finished){
+			writer.close();
+			deleteIncomplete(outputFile);
+			if(reverseIndexFile != null){
+				deleteIncomplete(reverseIndexFile);
+			}
+		}
+	}
+
+	private static void deleteIncomplete(File file){
+		if(file.exists() && !file.delete()){
+			System.out.println("The incomplete file " + file.getAbsolutePath() + " could not be removed");
+		}
+	}
+
+	private static BufferedWriter newWriter(File file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+	}
+}
@@ -7,26 +7,39 @@ It expects the following parameters:
 1. Bio4j DB folder
 2. UniProt protein accession
 
+In batch mode it finds the enzymes related to every protein of an accession file _(e.g. a whole proteome)_ on a pool
+of worker threads sharing the graph handlers, writing one line per protein and enzyme _(accession, enzyme ID and
+official name)_ as TSV or JSON lines. The reverse index _(enzyme -> proteins)_ can be built in the same pass.
+Batch mode expects the following parameters:
+
+1. Bio4j DB folder
+2. Input TXT file including a list of UniProt accessions (one per line)
+3. Output file
+4. Output format: tsv | jsonl _(optional, tsv by default)_
+5. Number of threads _(optional, 1 by default)_
+6. Batch size _(optional, 1000 by default)_
+7. Reverse index output file _(optional)_
+
  */
 package com.bio4j.examples.enzyme;
 
+import com.bio4j.examples.util.Bio4jGraph;
+import com.bio4j.examples.util.BloomFilter;
+import com.bio4j.examples.util.BloomFilterCache;
+import com.bio4j.examples.util.ExecutionFailedException;
 import com.bio4j.model.enzymedb.vertices.Enzyme;
 import com.bio4j.model.uniprot.vertices.Protein;
-import com.bio4j.titan.model.enzyme.TitanEnzymeDBGraph;
 import com.bio4j.titan.model.uniprot.TitanUniProtGraph;
-import com.bio4j.titan.model.uniprot_enzyme.TitanUniProtEnzymeGraph;
 import com.bio4j.titan.util.DefaultTitanGraph;
 import com.era7.bioinfo.bioinfoutil.Executable;
 import com.thinkaurelius.titan.core.TitanEdge;
-import com.thinkaurelius.titan.core.TitanFactory;
-import com.thinkaurelius.titan.core.TitanGraph;
 import com.thinkaurelius.titan.core.TitanVertex;
 import com.thinkaurelius.titan.core.schema.EdgeLabelMaker;
 import com.thinkaurelius.titan.core.schema.VertexLabelMaker;
-import org.apache.commons.configuration.BaseConfiguration;
-import org.apache.commons.configuration.Configuration;
 
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -43,54 +56,110 @@ public class GetProteinEnzymaticActivity implements Executable{
 
 	public static void main(String[] args){
 
-		if (args.length != 2) {
+		if (args.length >= 3 && args.length <= 7) {
+			runBatch(args);
+		} else if (args.length != 2) {
 			System.out.println("This program expects the following parameters:\n"
-					+ "1. Titan properties file (.properties)\n"
-					+ "2. UniProt protein accession");
+					+ "1. Titan properties file (.properties) or Bio4j DB folder\n"
+					+ "2. UniProt protein accession\n"
+					+ "or the following ones in batch mode:\n"
+					+ "1. Titan properties file (.properties) or Bio4j DB folder\n"
+					+ "2. Input TXT file including a list of UniProt accessions (one per line)\n"
+					+ "3. Output file\n"
+					+ "4. Output format: tsv | jsonl (optional, tsv by default)\n"
+					+ "5. Number of threads (optional, " + EnzymeActivityLookupEngine.DEFAULT_NUMBER_OF_THREADS + " by default)\n"
+					+ "6. Batch size (optional, " + EnzymeActivityLookupEngine.DEFAULT_BATCH_SIZE + " by default)\n"
+					+ "7. Reverse index output file (optional)");
 		} else {
 
 			String propertiesFileName = args[0];
 			String proteinAccession = args[1];
 
-			System.out.println("Opening the database...");
-			TitanGraph titanGraph = TitanFactory.open(propertiesFileName);
-			DefaultTitanGraph defGraph = new DefaultTitanGraph(titanGraph);
+			//-------getting the graph handlers---------------------
+			Bio4jGraph bio4jGraph = Bio4jGraph.acquire(propertiesFileName);
+			TitanUniProtGraph titanUniProtGraph = bio4jGraph.uniProtGraph();
 
-			System.out.println("Creating the graph managers....");
+			try{
 
-			//====================================================================================
-			TitanEnzymeDBGraph titanEnzymeDBGraph = new TitanEnzymeDBGraph(defGraph);
-			TitanUniProtGraph titanUniProtGraph = new TitanUniProtGraph(defGraph);
+				Optional<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> proteinOptional = titanUniProtGraph.proteinAccessionIndex().getVertex(proteinAccession);
+				if(!proteinOptional.isPresent()){
+					System.out.println("There was no protein found for the accession provided: " + proteinAccession);
+				}else{
+					Optional<Stream<Enzyme<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> enzymesOptionalStream = proteinOptional.get().enzymaticActivity_outV();
+					if(enzymesOptionalStream.isPresent()){
+						List<Enzyme<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> enzymeList = enzymesOptionalStream.get().collect((Collectors.toList()));
+						System.out.println("The following enzymes were found to be related to the protein provided: ");
+						for (Enzyme<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> enzyme : enzymeList){
+							System.out.println(enzyme.id() + " : " + enzyme.officialName());
+						}
+					}else{
+						System.out.println("The protein provided does not have any enzymatic acitivy associated... :|");
+					}
+				}
 
-			TitanUniProtEnzymeGraph titanUniProtEnzymeGraph = new TitanUniProtEnzymeGraph(defGraph, titanUniProtGraph, titanEnzymeDBGraph);
+			}finally{
+				bio4jGraph.release();
+			}
+			System.out.println("Done ;)");
+		}
 
-			titanEnzymeDBGraph.withUniProtEnzymeGraph(titanUniProtEnzymeGraph);
-			titanUniProtGraph.withUniProtEnzymeGraph(titanUniProtEnzymeGraph);
-			//====================================================================================
+	}
 
-			System.out.println("Done!");
+	private static void runBatch(String[] args){
+
+		String propertiesFileName = args[0];
+		File inputFile = new File(args[1]);
+		File outputFile = new File(args[2]);
+		String format = EnzymeActivityWriter.TSV_FORMAT;
+		int numberOfThreads = EnzymeActivityLookupEngine.DEFAULT_NUMBER_OF_THREADS;
+		int batchSize = EnzymeActivityLookupEngine.DEFAULT_BATCH_SIZE;
+		File reverseIndexFile = null;
+		if(args.length >= 4){
+			format = args[3];
+		}
+		if(args.length >= 5){
+			numberOfThreads = Integer.parseInt(args[4]);
+		}
+		if(args.length >= 6){
+			batchSize = Integer.parseInt(args[5]);
+		}
+		if(args.length == 7){
+			reverseIndexFile = new File(args[6]);
+		}
 
-			Optional<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> proteinOptional = titanUniProtGraph.proteinAccessionIndex().getVertex(proteinAccession);
-			if(!proteinOptional.isPresent()){
-				System.out.println("There was no protein found for the accession provided: " + proteinAccession);
-			}else{
-				Optional<Stream<Enzyme<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> enzymesOptionalStream = proteinOptional.get().enzymaticActivity_outV();
-				if(enzymesOptionalStream.isPresent()){
-					List<Enzyme<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> enzymeList = enzymesOptionalStream.get().collect((Collectors.toList()));
-					System.out.println("The following enzymes were found to be related to the protein provided: ");
-					for (Enzyme<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> enzyme : enzymeList){
-						System.out.println(enzyme.id() + " : " + enzyme.officialName());
-					}
-				}else{
-					System.out.println("The protein provided does not have any enzymatic acitivy associated... :|");
-				}
+		//-------getting the graph handlers---------------------
+		Bio4jGraph bio4jGraph = Bio4jGraph.acquire(propertiesFileName);
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(inputFile));
+		     EnzymeActivityWriter activityWriter = new EnzymeActivityWriter(outputFile, format, reverseIndexFile)){
+
+			//----filter files are stored next to the DB folder, also when a properties file was provided----
+			String storageDirectory = bio4jGraph.storageDirectory();
+			BloomFilter accessionFilter = storageDirectory == null ? null : BloomFilterCache.loadIfValid(storageDirectory, BloomFilterCache.PROTEIN_ACCESSIONS);
+			if(accessionFilter != null){
+				System.out.println("Using protein accession filter (" + accessionFilter.summary() + ")");
 			}
 
+			System.out.println("Finding enzymatic activities...");
+			EnzymeActivityLookupEngine lookupEngine = new EnzymeActivityLookupEngine(bio4jGraph.titanGraph(), bio4jGraph.uniProtGraph(), numberOfThreads, batchSize)
+					.withAccessionFilter(accessionFilter);
+			lookupEngine.lookup(reader, activityWriter);
+			System.out.println("Done! (" + activityWriter.activitiesWritten() + " enzymatic activities written)");
 
-			System.out.println("Closing the database...");
-			titanGraph.shutdown();
-			System.out.println("Done ;)");
+			if(accessionFilter != null){
+				System.out.println("Protein accession filter: " + accessionFilter.statsSummary());
+			}
+			if(reverseIndexFile != null){
+				System.out.println("Writing reverse index (" + activityWriter.numberOfEnzymes() + " enzymes)...");
+			}
+			activityWriter.finish();
+
+		}catch(IOException | InterruptedException | ExecutionException e){
+			throw new ExecutionFailedException(GetProteinEnzymaticActivity.class.getSimpleName(), e);
+		}finally{
+			bio4jGraph.release();
 		}
 
+		System.out.println("Done ;)");
 	}
 }
@@ -0,0 +1,216 @@
+/*
+Resolver used to find the UniProt proteins associated to a list of GIs through the NCBI taxons the GIs are linked to.
+
+Large GI lists usually point to far fewer taxa than GIs, so the resolution is done in two steps:
+
+1. GIs are split into batches which are resolved concurrently to their NCBI taxon IDs, keeping the distinct taxa in
+the order they are first found. GI to taxon lookups go through a LookupCache, so repeated GIs are resolved once.
+2. Every distinct taxon is expanded exactly once into its proteins, with the expansions spread over the same pool of
+worker threads. Only a bounded number of expansions are submitted ahead of the one being merged, so the proteins of
+at most a few taxa are held in memory besides the result.
+
+Each worker reads through the transaction Titan binds to its thread, which is closed once its task is done. Results
+are handed over by the calling thread in submission order, so the output does not depend on thread scheduling.
+They can either be collected into a map or streamed to a ProteinSetWriter, which keeps memory usage bounded no
+matter how many proteins are found.
+
+ */
+package com.bio4j.examples.geninfo;
+
+import com.bio4j.examples.util.BloomFilter;
+import com.bio4j.examples.util.LookupCache;
+import com.bio4j.examples.util.ProteinSetWriter;
+import com.bio4j.model.geninfo.vertices.GenInfo;
+import com.bio4j.model.ncbiTaxonomy.vertices.NCBITaxon;
+import com.bio4j.model.uniprot.vertices.Protein;
+import com.bio4j.titan.model.geninfo.TitanGenInfoGraph;
+import com.bio4j.titan.model.ncbiTaxonomy.TitanNCBITaxonomyGraph;
+import com.bio4j.titan.util.DefaultTitanGraph;
+import com.thinkaurelius.titan.core.TitanEdge;
+import com.thinkaurelius.titan.core.TitanGraph;
+import com.thinkaurelius.titan.core.TitanVertex;
+import com.thinkaurelius.titan.core.schema.EdgeLabelMaker;
+import com.thinkaurelius.titan.core.schema.VertexLabelMaker;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+public class GIProteinResolver {
+
+	public static final int DEFAULT_NUMBER_OF_THREADS = 1;
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	public static final String GI_TAXON_CACHE = "genInfoIdIndex.ncbiTaxon";
+
+	private final TitanGraph titanGraph;
+	private final TitanGenInfoGraph titanGenInfoGraph;
+	private final TitanNCBITaxonomyGraph titanNCBITaxonomyGraph;
+	private final LookupCache<String> giTaxonCache;
+	private final int numberOfThreads;
+	private final int batchSize;
+	private BloomFilter giFilter;
+
+	public GIProteinResolver(TitanGraph titanGraph,
+	                         TitanGenInfoGraph titanGenInfoGraph,
+	                         TitanNCBITaxonomyGraph titanNCBITaxonomyGraph,
+	                         LookupCache<String> giTaxonCache,
+	                         int numberOfThreads,
+	                         int batchSize){
+
+		if(numberOfThreads < 1){
+			throw new IllegalArgumentException("The number of threads must be at least 1: " + numberOfThreads);
+		}
+		if(batchSize < 1){
+			throw new IllegalArgumentException("The batch size must be at least 1: " + batchSize);
+		}
+
+		this.titanGraph = titanGraph;
+		this.titanGenInfoGraph = titanGenInfoGraph;
+		this.titanNCBITaxonomyGraph = titanNCBITaxonomyGraph;
+		this.giTaxonCache = giTaxonCache;
+		this.numberOfThreads = numberOfThreads;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @param giFilter Bloom filter over the GIs of the database, null for none
+	 */
+	public GIProteinResolver withGIFilter(BloomFilter giFilter){
+		this.giFilter = giFilter;
+		return this;
+	}
+
+	/**
+	 * Finds the proteins associated to the GIs provided.
+	 *
+	 * @return map including the proteins found indexed by their accession
+	 */
+	public Map<String, com.bio4j.json.uniprot.Protein> resolve(List<String> gis) throws InterruptedException, ExecutionException, IOException {
+		Map<String, com.bio4j.json.uniprot.Protein> proteinMap = new LinkedHashMap<>();
+		resolve(gis, protein -> proteinMap.putIfAbsent(protein.getAccession(), protein));
+		return proteinMap;
+	}
+
+	/**
+	 * Finds the proteins associated to the GIs provided, writing them out as soon as every taxon is expanded.
+	 */
+	public void resolve(List<String> gis, ProteinSetWriter proteinSetWriter) throws InterruptedException, ExecutionException, IOException {
+		resolve(gis, proteinSetWriter::write);
+	}
+
+	private interface ProteinConsumer {
+		void accept(com.bio4j.json.uniprot.Protein protein) throws IOException;
+	}
+
+	private void resolve(List<String> gis, ProteinConsumer proteinConsumer) throws InterruptedException, ExecutionException, IOException {
+
+		long startTime = System.currentTimeMillis();
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+
+		try{
+
+			//----step 1: GIs to distinct taxon IDs----
+			List<Future<Set<String>>> batchResults = new ArrayList<>();
+			for (int i = 0; i < gis.size(); i += batchSize) {
+				List<String> batch = gis.subList(i, Math.min(i + batchSize, gis.size()));
+				batchResults.add(executor.submit(() -> resolveTaxa(batch)));
+			}
+			Set<String> taxonIds = new LinkedHashSet<>();
+			for (Future<Set<String>> batchResult : batchResults){
+				taxonIds.addAll(batchResult.get());
+			}
+			System.out.println(gis.size() + " GIs resolved to " + taxonIds.size() + " distinct NCBI taxons in "
+					+ (System.currentTimeMillis() - startTime) + " ms");
+
+			//----step 2: every taxon expanded once, with a bounded number of expansions ahead of the merge----
+			Deque<Future<List<com.bio4j.json.uniprot.Protein>>> pendingTaxa = new ArrayDeque<>();
+			int maxPendingTaxa = numberOfThreads * 2;
+			int taxonCounter = 0;
+
+			for (String taxonId : taxonIds){
+				if(pendingTaxa.size() >= maxPendingTaxa){
+					consumeTaxonProteins(proteinConsumer, pendingTaxa.poll().get());
+					taxonCounter++;
+				}
+				pendingTaxa.add(executor.submit(() -> expandTaxon(taxonId)));
+			}
+			while(!pendingTaxa.isEmpty()){
+				consumeTaxonProteins(proteinConsumer, pendingTaxa.poll().get());
+				taxonCounter++;
+			}
+			System.out.println(taxonCounter + " NCBI taxons expanded");
+
+		}finally{
+			executor.shutdownNow();
+		}
+
+		long elapsedTime = Math.max(1, System.currentTimeMillis() - startTime);
+		System.out.println(gis.size() + " GIs processed in " + elapsedTime + " ms ("
+				+ (gis.size() * 1000L / elapsedTime) + " GIs/s)");
+	}
+
+	private Set<String> resolveTaxa(List<String> batch){
+
+		Set<String> taxonIds = new LinkedHashSet<>();
+
+		try{
+			for (String gi : batch){
+				if(giFilter != null && !giFilter.mightContain(gi)){
+					continue;
+				}
+				String taxonId = giTaxonCache.get(gi, this::getGITaxonId);
+				if(taxonId != null){
+					taxonIds.add(taxonId);
+				}
+			}
+		}finally{
+			//----the work done is read-only so the transaction bound to this thread is simply closed-----
+			titanGraph.rollback();
+		}
+
+		return taxonIds;
+	}
+
+	private String getGITaxonId(String gi){
+		Optional<GenInfo<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> genInfoOptional = titanGenInfoGraph.genInfoIdIndex().getVertex(gi);
+		if(genInfoOptional.isPresent()){
+			NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> ncbiTaxon = genInfoOptional.get().genInfoNCBITaxon_outV();
+			if(ncbiTaxon != null){
+				return ncbiTaxon.id();
+			}
+		}else if(giFilter != null){
+			giFilter.recordFalsePositive();
+		}
+		return null;
+	}
+
+	private List<com.bio4j.json.uniprot.Protein> expandTaxon(String taxonId){
+
+		List<com.bio4j.json.uniprot.Protein> proteins = new ArrayList<>();
+
+		try{
+			Optional<NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> taxonOptional = titanNCBITaxonomyGraph.ncbiTaxonIdIndex().getVertex(taxonId);
+			if(taxonOptional.isPresent()){
+				Optional<Stream<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> proteinStreamOptional = taxonOptional.get().proteinNCBITaxon_inV();
+				if(proteinStreamOptional.isPresent()){
+					proteinStreamOptional.get().forEach(protein -> proteins.add(new com.bio4j.json.uniprot.Protein(protein)));
+				}
+			}
+		}finally{
+			titanGraph.rollback();
+		}
+
+		return proteins;
+	}
+
+	private static void consumeTaxonProteins(ProteinConsumer proteinConsumer, List<com.bio4j.json.uniprot.Protein> taxonProteins) throws IOException {
+		for (com.bio4j.json.uniprot.Protein protein : taxonProteins){
+			proteinConsumer.accept(protein);
+		}
+	}
+}
@@ -2,42 +2,35 @@
 
 This program retrieves the list of proteins that are associated to the set of GIs provided as a parameter.
 The selection of the proteins is carried out by means of the NCBI taxons linked to the respective GIs.
+GIs are first grouped by NCBI taxon and then every distinct taxon is expanded into its proteins only once, both steps
+running on a pool of worker threads _(see GIProteinResolver)_.
+Proteins are written to the output file as soon as they are found and deduplicated by accession within a memory
+budget, beyond which the accessions already written are spilled to disk _(see ProteinSetWriter)_.
+GIs ruled out by the GI Bloom filter of the database _(see BuildIdFilter)_ are skipped without querying the GI index.
 
 The program expects the following parameters:
 
 1. Bio4j DB folder
 2. Input TXT file including a list of GIs (one per line)
 3. Output JSON file including a set of UniProt proteins
+4. Number of threads _(optional, 1 by default)_
+5. Batch size _(optional, 1000 by default)_
+6. Memory budget in MB for the accession deduplication _(optional, 64 by default)_
 
  */
 package com.bio4j.examples.geninfo;
 
-import com.bio4j.model.geninfo.vertices.GenInfo;
-import com.bio4j.model.ncbiTaxonomy.vertices.NCBITaxon;
-import com.bio4j.model.uniprot.vertices.Protein;
-import com.bio4j.titan.model.geninfo.TitanGenInfoGraph;
-import com.bio4j.titan.model.ncbiTaxonomy.TitanNCBITaxonomyGraph;
-import com.bio4j.titan.model.ncbiTaxonomy_geninfo.TitanNCBITaxonomyGenInfoGraph;
-import com.bio4j.titan.model.uniprot.TitanUniProtGraph;
-import com.bio4j.titan.model.uniprot_ncbiTaxonomy.TitanUniProtNCBITaxonomyGraph;
-import com.bio4j.titan.util.DefaultTitanGraph;
+import com.bio4j.examples.util.AccessionSet;
+import com.bio4j.examples.util.Bio4jGraph;
+import com.bio4j.examples.util.BloomFilter;
+import com.bio4j.examples.util.BloomFilterCache;
+import com.bio4j.examples.util.ExecutionFailedException;
+import com.bio4j.examples.util.ProteinSetWriter;
 import com.era7.bioinfo.bioinfoutil.Executable;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.thinkaurelius.titan.core.TitanEdge;
-import com.thinkaurelius.titan.core.TitanFactory;
-import com.thinkaurelius.titan.core.TitanGraph;
-import com.thinkaurelius.titan.core.TitanVertex;
-import com.thinkaurelius.titan.core.schema.EdgeLabelMaker;
-import com.thinkaurelius.titan.core.schema.VertexLabelMaker;
-import org.apache.commons.configuration.BaseConfiguration;
-import org.apache.commons.configuration.Configuration;
-import com.bio4j.json.uniprot.ProteinSet;
 
 import java.io.*;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ExecutionException;
 
 public class GetProteinsAssociatedToGIs implements Executable{
 
@@ -52,55 +45,45 @@ public class GetProteinsAssociatedToGIs implements Executable{
 
 	public static void main(String[] args){
 
-		if (args.length != 3) {
+		if (args.length < 3 || args.length > 6) {
 			System.out.println("This program expects the following parameters:\n"
 					+ "1. Bio4j DB folder\n"
 					+ "2. Input TXT file including a list of GIs (one per line)\n"
-					+ "3. Output JSON file including a set of UniProt proteins"
+					+ "3. Output JSON file including a set of UniProt proteins\n"
+					+ "4. Number of threads (optional, " + GIProteinResolver.DEFAULT_NUMBER_OF_THREADS + " by default)\n"
+					+ "5. Batch size (optional, " + GIProteinResolver.DEFAULT_BATCH_SIZE + " by default)\n"
+					+ "6. Memory budget in MB for the accession deduplication (optional, " + (AccessionSet.DEFAULT_MEMORY_BUDGET >> 20) + " by default)"
 			);
 		} else {
 
 			String dbFolder = args[0];
 			String inputFileSt = args[1];
 			String outputFileSt = args[2];
+			int numberOfThreads = GIProteinResolver.DEFAULT_NUMBER_OF_THREADS;
+			int batchSize = GIProteinResolver.DEFAULT_BATCH_SIZE;
+			if(args.length >= 4){
+				numberOfThreads = Integer.parseInt(args[3]);
+			}
+			if(args.length >= 5){
+				batchSize = Integer.parseInt(args[4]);
+			}
+			long memoryBudget = AccessionSet.DEFAULT_MEMORY_BUDGET;
+			if(args.length == 6){
+				memoryBudget = Long.parseLong(args[5]) << 20;
+			}
 
-			//----------DB configuration------------------
-			Configuration conf = new BaseConfiguration();
-			conf.setProperty("storage.directory", dbFolder);
-			conf.setProperty("storage.backend", "berkeleyje");
-			//-------creating graph handlers---------------------
-			TitanGraph titanGraph = TitanFactory.open(conf);
-			DefaultTitanGraph defGraph = new DefaultTitanGraph(titanGraph);
-
-			System.out.println("Creating the graph managers....");
-
-			//====================================================================================
-			TitanGenInfoGraph titanGenInfoGraph = new TitanGenInfoGraph(defGraph);
-			TitanUniProtGraph titanUniProtGraph = new TitanUniProtGraph(defGraph);
-			TitanNCBITaxonomyGraph titanNCBITaxonomyGraph = new TitanNCBITaxonomyGraph(defGraph);
-
-			TitanNCBITaxonomyGenInfoGraph titanNCBITaxonomyGenInfoGraph = new TitanNCBITaxonomyGenInfoGraph(defGraph, titanNCBITaxonomyGraph, titanGenInfoGraph);
-			TitanUniProtNCBITaxonomyGraph titanUniProtNCBITaxonomyGraph = new TitanUniProtNCBITaxonomyGraph(defGraph, titanUniProtGraph, titanNCBITaxonomyGraph);
-
-			titanGenInfoGraph.withNCBITaxonomyGenInfoGraph(titanNCBITaxonomyGenInfoGraph);
-			titanUniProtGraph.withUniProtNCBITaxonomyGraph(titanUniProtNCBITaxonomyGraph);
-			titanNCBITaxonomyGraph.withNCBITaxonomyGenInfoGraph(titanNCBITaxonomyGenInfoGraph);
-			titanNCBITaxonomyGraph.withUniProtNCBITaxonomyGraph(titanUniProtNCBITaxonomyGraph);
-			//====================================================================================
-
-			System.out.println("Done!");
+			//-------getting the graph handlers---------------------
+			Bio4jGraph bio4jGraph = Bio4jGraph.acquire(dbFolder);
 
 			File inputFile = new File(inputFileSt);
 			File outputFile = new File(outputFileSt);
 
 			try {
 
-				BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile));
 				BufferedReader reader = new BufferedReader(new FileReader(inputFile));
 
 				String line;
-				LinkedList<String> giList = new LinkedList<>();
-				HashMap<String, com.bio4j.json.uniprot.Protein> proteinHashMap = new HashMap<>();
+				List<String> giList = new ArrayList<>();
 
 				System.out.println("Reading GI list...");
 				while((line = reader.readLine()) != null){
@@ -109,49 +92,35 @@ public class GetProteinsAssociatedToGIs implements Executable{
 				reader.close();
 				System.out.println("Done!");
 
-				System.out.println("Looking for NCBI taxons associated...");
-
-				for (String giSt : giList){
-					Optional<GenInfo<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> genInfoOptional = titanGenInfoGraph.genInfoIdIndex().getVertex(giSt);
-					if(genInfoOptional.isPresent()){
-						GenInfo<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> genInfo = genInfoOptional.get();
-						NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> ncbiTaxon = genInfo.genInfoNCBITaxon_outV();
-						Optional<Stream<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> proteinStreamOptional = ncbiTaxon.proteinNCBITaxon_inV();
-						if(proteinStreamOptional.isPresent()){
-							List<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> proteins = proteinStreamOptional.get().collect((Collectors.toList()));
-							for (Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> protein : proteins){
-								com.bio4j.json.uniprot.Protein proteinJSON = proteinHashMap.get(protein.accession());
-								if(proteinJSON == null){
-									proteinJSON = new com.bio4j.json.uniprot.Protein(protein);
-									proteinHashMap.put(protein.accession(), proteinJSON);
-								}
-							}
-
-						}
-					}
+				//----filter files are stored next to the DB folder, also when a properties file was provided----
+				String storageDirectory = bio4jGraph.storageDirectory();
+				BloomFilter giFilter = storageDirectory == null ? null : BloomFilterCache.loadIfValid(storageDirectory, BloomFilterCache.GIS);
+				if(giFilter != null){
+					System.out.println("Using GI filter (" + giFilter.summary() + ")");
 				}
 
-				System.out.println("Done!");
+				System.out.println("Looking for NCBI taxons associated and writing their proteins...");
 
-				ProteinSet proteinSet = new ProteinSet();
-				for (String key : proteinHashMap.keySet()){
-					com.bio4j.json.uniprot.Protein proteinJSON = proteinHashMap.get(key);
-					proteinSet.addProtein(proteinJSON);
+				GIProteinResolver resolver = new GIProteinResolver(bio4jGraph.titanGraph(), bio4jGraph.genInfoGraph(), bio4jGraph.ncbiTaxonomyGraph(),
+						bio4jGraph.lookupCache(GIProteinResolver.GI_TAXON_CACHE), numberOfThreads, batchSize)
+						.withGIFilter(giFilter);
+				try (ProteinSetWriter proteinSetWriter = new ProteinSetWriter(outputFile, memoryBudget)){
+					resolver.resolve(giList, proteinSetWriter);
+					proteinSetWriter.finish();
+					System.out.println("Done! (" + proteinSetWriter.summary() + ")");
 				}
 
-				System.out.println("Writing output file....");
-				Gson gson = new GsonBuilder().setPrettyPrinting().create();
-				writer.write(gson.toJson(proteinSet));
-				System.out.println("Closing output file...");
+				if(giFilter != null){
+					System.out.println("GI filter: " + giFilter.statsSummary());
+				}
 
-			} catch (IOException e) {
-				e.printStackTrace();
+			} catch (IOException | InterruptedException | ExecutionException e) {
+				throw new ExecutionFailedException(GetProteinsAssociatedToGIs.class.getSimpleName(), e);
+			} finally {
+				bio4jGraph.release();
 			}
 
-			System.out.println("Closing the database...");
-			titanGraph.shutdown();
 			System.out.println("Done ;)");
 		}
-
 	}
 }
@@ -0,0 +1,230 @@
+/*
+Propagation of GO term counts to their ancestors over a GoDAG snapshot.
+
+The sub-DAG made of the annotated terms plus all their ancestors is sorted topologically once _(descendants
+before ancestors)_, and counts are then pushed upwards following that order. Three semantics are supported:
+
+* PER_PATH: every term adds its count to an ancestor once for every is_a path leading to it. This is what
+GetCumulativeFrequenciesForGoSet has always computed.
+* PER_ANCESTOR: every term adds its count to each of its ancestors exactly once, no matter how many paths lead there.
+* DISTINCT_PROTEINS: the cumulative count of a term is the number of distinct proteins annotated by the term or any
+of its descendants. The proteins of every term are kept as compressed bitmaps _(proteins mapped to dense ints)_ which
+are OR-ed upwards; the bitmap of a term is released as soon as it has been pushed to its parents, so only the
+frontier of the traversal is kept in memory.
+
+In all cases only the terms that were annotated get a cumulative count, and terms missing from the snapshot keep
+their own count.
+
+ */
+package com.bio4j.examples.go;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.*;
+
+public class CumulativeCountPropagator {
+
+	public enum Semantics {
+		PER_PATH,
+		PER_ANCESTOR,
+		DISTINCT_PROTEINS;
+
+		/**
+		 * @return the semantics named as provided _(case insensitive)_, or null when there is none
+		 */
+		public static Semantics fromName(String name){
+			for (Semantics semantics : values()){
+				if(semantics.name().equalsIgnoreCase(name)){
+					return semantics;
+				}
+			}
+			return null;
+		}
+	}
+
+	private final GoDAG goDAG;
+
+	public CumulativeCountPropagator(GoDAG goDAG){
+		this.goDAG = goDAG;
+	}
+
+	/**
+	 * @param termCounts count of every annotated term indexed by its ID
+	 * @return cumulative count of every annotated term indexed by its ID
+	 */
+	public Map<String, Integer> propagate(Map<String, Integer> termCounts, Semantics semantics){
+
+		if(semantics == Semantics.DISTINCT_PROTEINS){
+			throw new IllegalArgumentException("Distinct protein counts require the annotated proteins of every term, see propagateDistinctProteins");
+		}
+
+		long[] ownCounts = new long[goDAG.size()];
+		List<Integer> annotatedTerms = new ArrayList<>();
+		for (Map.Entry<String, Integer> entry : termCounts.entrySet()){
+			int term = goDAG.indexOf(entry.getKey());
+			if(term >= 0){
+				ownCounts[term] = entry.getValue();
+				annotatedTerms.add(term);
+			}
+		}
+
+		long[] cumulativeCounts;
+		if(semantics == Semantics.PER_PATH){
+			cumulativeCounts = propagatePerPath(annotatedTerms, ownCounts);
+		}else{
+			cumulativeCounts = propagatePerAncestor(annotatedTerms, ownCounts);
+		}
+
+		Map<String, Integer> result = new HashMap<>(termCounts.size() * 2);
+		for (Map.Entry<String, Integer> entry : termCounts.entrySet()){
+			int term = goDAG.indexOf(entry.getKey());
+			if(term >= 0){
+				result.put(entry.getKey(), (int) Math.min(Integer.MAX_VALUE, cumulativeCounts[term]));
+			}else{
+				result.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param termProteins proteins annotated by every term _(as dense protein indexes)_ indexed by term ID
+	 * @return number of distinct proteins annotated by every term or its descendants indexed by term ID
+	 */
+	public Map<String, Integer> propagateDistinctProteins(Map<String, RoaringBitmap> termProteins){
+
+		RoaringBitmap[] accumulatedProteins = new RoaringBitmap[goDAG.size()];
+		List<Integer> annotatedTerms = new ArrayList<>();
+		for (Map.Entry<String, RoaringBitmap> entry : termProteins.entrySet()){
+			int term = goDAG.indexOf(entry.getKey());
+			if(term >= 0){
+				accumulatedProteins[term] = entry.getValue().clone();
+				annotatedTerms.add(term);
+			}
+		}
+
+		int[] distinctCounts = new int[goDAG.size()];
+		for (int term : topologicalOrder(annotatedTerms)){
+
+			RoaringBitmap proteins = accumulatedProteins[term];
+			accumulatedProteins[term] = null;
+			if(proteins == null){
+				continue;
+			}
+			distinctCounts[term] = proteins.getCardinality();
+
+			int parentCount = goDAG.parentCount(term);
+			for (int k = 0; k < parentCount; k++) {
+				int parent = goDAG.parent(term, k);
+				if(accumulatedProteins[parent] == null){
+					//----the last parent can take over the bitmap since it is not needed here anymore----
+					accumulatedProteins[parent] = (k == parentCount - 1) ? proteins : proteins.clone();
+				}else{
+					accumulatedProteins[parent].or(proteins);
+				}
+			}
+		}
+
+		Map<String, Integer> result = new HashMap<>(termProteins.size() * 2);
+		for (Map.Entry<String, RoaringBitmap> entry : termProteins.entrySet()){
+			int term = goDAG.indexOf(entry.getKey());
+			result.put(entry.getKey(), term >= 0 ? distinctCounts[term] : entry.getValue().getCardinality());
+		}
+		return result;
+	}
+
+	/**
+	 * @return the annotated terms plus all their ancestors, ordered so that every term comes before all its parents
+	 */
+	public int[] topologicalOrder(Collection<Integer> annotatedTerms){
+
+		//----marking the relevant sub-DAG----
+		BitSet relevant = new BitSet(goDAG.size());
+		Deque<Integer> stack = new ArrayDeque<>();
+		for (int term : annotatedTerms){
+			if(!relevant.get(term)){
+				relevant.set(term);
+				stack.push(term);
+			}
+		}
+		while(!stack.isEmpty()){
+			int term = stack.pop();
+			for (int k = 0; k < goDAG.parentCount(term); k++) {
+				int parent = goDAG.parent(term, k);
+				if(!relevant.get(parent)){
+					relevant.set(parent);
+					stack.push(parent);
+				}
+			}
+		}
+
+		//----Kahn's algorithm over the sub-DAG: a term is ready once all its relevant children have been sorted----
+		int[] pendingChildren = new int[goDAG.size()];
+		for (int term = relevant.nextSetBit(0); term >= 0; term = relevant.nextSetBit(term + 1)) {
+			for (int k = 0; k < goDAG.parentCount(term); k++) {
+				pendingChildren[goDAG.parent(term, k)]++;
+			}
+		}
+
+		int[] order = new int[relevant.cardinality()];
+		int head = 0;
+		int tail = 0;
+		for (int term = relevant.nextSetBit(0); term >= 0; term = relevant.nextSetBit(term + 1)) {
+			if(pendingChildren[term] == 0){
+				order[tail++] = term;
+			}
+		}
+		while(head < tail){
+			int term = order[head++];
+			for (int k = 0; k < goDAG.parentCount(term); k++) {
+				int parent = goDAG.parent(term, k);
+				if(--pendingChildren[parent] == 0){
+					order[tail++] = parent;
+				}
+			}
+		}
+		return order;
+	}
+
+	private long[] propagatePerPath(List<Integer> annotatedTerms, long[] ownCounts){
+
+		long[] pushedCounts = Arrays.copyOf(ownCounts, ownCounts.length);
+		for (int term : topologicalOrder(annotatedTerms)){
+			for (int k = 0; k < goDAG.parentCount(term); k++) {
+				pushedCounts[goDAG.parent(term, k)] += pushedCounts[term];
+			}
+		}
+		return pushedCounts;
+	}
+
+	private long[] propagatePerAncestor(List<Integer> annotatedTerms, long[] ownCounts){
+
+		long[] cumulativeCounts = Arrays.copyOf(ownCounts, ownCounts.length);
+		//----visit stamps avoid clearing a visited set for every annotated term----
+		int[] lastVisitedBy = new int[goDAG.size()];
+		Arrays.fill(lastVisitedBy, -1);
+		int[] stack = new int[64];
+
+		for (int term : annotatedTerms){
+			long count = ownCounts[term];
+			int stackSize = 0;
+			stack[stackSize++] = term;
+			lastVisitedBy[term] = term;
+			while(stackSize > 0){
+				int current = stack[--stackSize];
+				for (int k = 0; k < goDAG.parentCount(current); k++) {
+					int parent = goDAG.parent(current, k);
+					if(lastVisitedBy[parent] != term){
+						lastVisitedBy[parent] = term;
+						cumulativeCounts[parent] += count;
+						if(stackSize == stack.length){
+							stack = Arrays.copyOf(stack, stackSize * 2);
+						}
+						stack[stackSize++] = parent;
+					}
+				}
+			}
+		}
+		return cumulativeCounts;
+	}
+}
@@ -1,5 +1,8 @@
 /*
 This program simply exports a JSON file including a GoSet annotation to a CSV file.
+The input file is read term by term, so memory usage does not depend on its size; only the proteins _(plus the IDs
+of the terms annotating them)_ are kept when the annotated proteins file is generated.
+CSV fields are quoted following RFC 4180 when needed.
 The program expects the following parameters:
 
 1. Input JSON GO anmnotation file
@@ -8,11 +11,10 @@ The program expects the following parameters:
  */
 package com.bio4j.examples.go;
 
+import com.bio4j.examples.util.CsvWriter;
+import com.bio4j.examples.util.ExecutionFailedException;
 import com.era7.bioinfo.bioinfoutil.Executable;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.bio4j.json.go.GOTerm;
-import com.bio4j.json.go.GoSet;
 import com.bio4j.json.uniprot.Protein;
 
 import java.io.*;
@@ -38,7 +40,7 @@ public class ExportGOJSONToCSV implements Executable{
 			System.out.println("This program expects the following parameters:\n"
 					+ "1. Input JSON GO anmnotation file\n"
 					+ "2. Output CSV GO annotation file\n"
-					+ "3. Include annotated proteins (true/false)"
+					+ "3. Include annotated proteins (true/false)\n"
 					+ "4. Generate annotated proteins CSV data file (true/false)");
 		} else {
 
@@ -50,47 +52,45 @@ public class ExportGOJSONToCSV implements Executable{
 			String annotatedProteinsFileSt = "annotatedProteins.csv";
 			File annotatedProteinsFile = new File(annotatedProteinsFileSt);
 
-			try {
+			try (GoSetJsonReader goSetReader = new GoSetJsonReader(new File(inputFileSt));
+			     CsvWriter writer = new CsvWriter(new File(outputFileSt));
+			     CsvWriter annotatedProteinsWriter = generateAnnotatedProteinsFile ? new CsvWriter(annotatedProteinsFile) : null){
 
-				BufferedReader reader = new BufferedReader(new FileReader(new File(inputFileSt)));
-				BufferedWriter writer = new BufferedWriter(new FileWriter(new File(outputFileSt)));
 				if(includeAnnotatedProteins){
-					writer.write(HEADER + ",ANNOTATED_PROTEINS" + "\n");
+					writer.writeLine(HEADER + ",ANNOTATED_PROTEINS");
 				}else{
-					writer.write(HEADER + "\n");
+					writer.writeLine(HEADER);
 				}
 
-
-				BufferedWriter annotatedProteinsWriter = new BufferedWriter(new FileWriter(new File(annotatedProteinsFileSt)));
-
 				if(generateAnnotatedProteinsFile){
-					annotatedProteinsWriter.write(ANNOTATED_PROTEINS_HEADER + "\n");
+					annotatedProteinsWriter.writeLine(ANNOTATED_PROTEINS_HEADER);
 				}
 
 
-				Gson gson = new GsonBuilder().setPrettyPrinting().create();
-				GoSet goSet = gson.fromJson(reader, GoSet.class);
 				HashMap<String, Protein> proteinsMap = new HashMap<>();
+				//----only the IDs of the terms annotating every protein are kept----
+				HashMap<String, List<String>> proteinGoTermIds = new HashMap<>();
 
-				for (GOTerm goTerm : goSet.getGoTerms()){
+				while (goSetReader.hasNext()){
 
-					String tempSt = goTerm.getId() + ",\"" + goTerm.getName() + "\"," + goTerm.getTermCount() + "," + goTerm.getCumulativeCount();
+					GOTerm goTerm = goSetReader.next();
+
+					writer.field(goTerm.getId())
+							.field(goTerm.getName())
+							.field(goTerm.getTermCount())
+							.field(goTerm.getCumulativeCount());
 
 					if(includeAnnotatedProteins){
 						List<Protein> annotatedProteins = goTerm.getAnnotatedProteins();
 						if(annotatedProteins != null){
-							String proteinsSt = ",[";
-
+							writer.beginCompositeField("[", ",", "]");
 							for (Protein protein : annotatedProteins){
-								proteinsSt += protein.getAccession() + ":" + protein.getFullName() + ",";
+								writer.item(protein.getAccession(), ':', protein.getFullName());
 							}
-							proteinsSt = proteinsSt.substring(0, proteinsSt.length() - 1);
-							proteinsSt += "]";
-							tempSt += proteinsSt;
+							writer.endCompositeField();
 						}
 					}
-					tempSt += "\n";
-					writer.write(tempSt);
+					writer.endRow();
 
 					if(generateAnnotatedProteinsFile){
 
@@ -108,19 +108,18 @@ public class ExportGOJSONToCSV implements Executable{
 									tempProtein.setFullName(protein.getFullName());
 									tempProtein.setGeneNames(protein.getGeneNames());
 									proteinsMap.put(tempProtein.getAccession(), tempProtein);
+									proteinGoTermIds.put(tempProtein.getAccession(), new ArrayList<String>());
 									mapProtein = tempProtein;
 								}
 
-								mapProtein.addAnnotatedByGOTerm(goTerm);
+								proteinGoTermIds.get(mapProtein.getAccession()).add(goTerm.getId());
 
 							}
 						}
 					}
 				}
 
-				System.out.println("Closing writer...");
-				writer.close();
-				System.out.println("Output file created successfully! :)");
+				System.out.println(goSetReader.numberOfTermsRead() + " terms exported");
 
 				if(generateAnnotatedProteinsFile){
 
@@ -128,34 +127,40 @@ public class ExportGOJSONToCSV implements Executable{
 					for (String proteinAccession : keySet){
 						Protein protein = proteinsMap.get(proteinAccession);
 
-						String geneNamesSt = "[";
+						annotatedProteinsWriter.field(protein.getAccession())
+								.field(protein.getName())
+								.field(protein.getFullName())
+								.field(protein.getShortName());
 
+						annotatedProteinsWriter.beginCompositeField("[", "|", "]");
 						if(protein.getGeneNames() != null){
 							for(String geneName : protein.getGeneNames()){
-								geneNamesSt += geneName + "|";
+								annotatedProteinsWriter.item(geneName);
 							}
-							geneNamesSt = geneNamesSt.substring(0,geneNamesSt.length() - 1);
 						}
+						annotatedProteinsWriter.endCompositeField();
 
-						geneNamesSt += "]";
+						List<String> goTermIds = proteinGoTermIds.get(proteinAccession);
 
-						String goTermsSt = "[";
-						for(GOTerm goTerm : protein.getAnnotatedByGOTerms()){
-							goTermsSt += goTerm.getId() + "|";
+						annotatedProteinsWriter.beginCompositeField("[", "|", "]");
+						for(String goTermId : goTermIds){
+							annotatedProteinsWriter.item(goTermId);
 						}
-						goTermsSt = goTermsSt.substring(0,goTermsSt.length() - 1);
-						goTermsSt += "]";
+						annotatedProteinsWriter.endCompositeField();
 
-						annotatedProteinsWriter.write(protein.getAccession() + "," + protein.getName() + "," + protein.getFullName() + "," +
-								protein.getShortName() + "," + geneNamesSt + "," + goTermsSt + "," + protein.getAnnotatedByGOTerms().size() + "\n");
+						annotatedProteinsWriter.field(goTermIds.size()).endRow();
 					}
-
-					annotatedProteinsWriter.close();
-					System.out.println("Annotated proteins file created successfully! :)");
 				}
 
+				System.out.println("Closing writers...");
+
 			} catch (IOException e) {
-				e.printStackTrace();
+				throw new ExecutionFailedException(ExportGOJSONToCSV.class.getSimpleName(), e);
+			}
+
+			System.out.println("Output file created successfully! :)");
+			if(generateAnnotatedProteinsFile){
+				System.out.println("Annotated proteins file created successfully! :)");
 			}
 
 		}
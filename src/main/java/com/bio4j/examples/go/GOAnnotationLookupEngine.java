@@ -0,0 +1,342 @@
+/*
+Lookup engine used to find the Gene Ontology annotations of a list of UniProt accessions.
+
+The accession list is split into batches of a configurable size which are resolved concurrently by a pool of worker
+threads. Titan binds an automatic transaction to every thread using the graph, so each worker reads through its own
+transaction, which is closed once its batch is done.
+Every batch builds its own GOTerm map; these partial maps are then merged into the final one by the calling thread,
+so no locks are needed while the workers are running.
+Terms are built without their annotated proteins: the proteins of every term are kept as a compressed bitmap of the
+positions of their accessions in the list looked up, and only expanded into protein information when the term is
+written. Protein information is kept in a size-bounded lookup cache, filled by the workers while they have the
+protein at hand, so that proteins annotated by many terms are not read from the database once per term.
+Parent term IDs are taken from the in-memory GoDAG snapshot instead of walking the is_a edges of every term found.
+The GO terms annotating every accession are kept in a size-bounded lookup cache as well, so accessions that show up
+again _(in later lists looked up through the same graph, or repeated in a list)_ do not probe the accession index and
+walk their annotation edges once more. Accessions not in the database are cached too.
+When a Bloom filter over the protein accessions of the database is provided, accessions it rules out are skipped
+without querying the accession index.
+
+ */
+package com.bio4j.examples.go;
+
+import com.bio4j.examples.util.BloomFilter;
+import com.bio4j.examples.util.LookupCache;
+import com.bio4j.json.go.GOTerm;
+import com.bio4j.model.go.vertices.GoTerm;
+import com.bio4j.model.uniprot.vertices.GeneName;
+import com.bio4j.model.uniprot.vertices.Protein;
+import com.bio4j.titan.model.uniprot.TitanUniProtGraph;
+import com.bio4j.titan.util.DefaultTitanGraph;
+import com.thinkaurelius.titan.core.TitanEdge;
+import com.thinkaurelius.titan.core.TitanGraph;
+import com.thinkaurelius.titan.core.TitanVertex;
+import com.thinkaurelius.titan.core.schema.EdgeLabelMaker;
+import com.thinkaurelius.titan.core.schema.VertexLabelMaker;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class GOAnnotationLookupEngine {
+
+	public static final int DEFAULT_NUMBER_OF_THREADS = 1;
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	public static final String PROTEIN_INFO_CACHE = "proteinAccessionIndex.proteinInfo";
+	public static final String PROTEIN_GO_TERMS_CACHE = "proteinAccessionIndex.goTerms";
+
+	private final TitanGraph titanGraph;
+	private final TitanUniProtGraph titanUniProtGraph;
+	private final GoDAG goDAG;
+	private final int numberOfThreads;
+	private final int batchSize;
+	private final boolean includeProteinInformation;
+	private final LookupCache<com.bio4j.json.uniprot.Protein> proteinInfoCache;
+	private final LookupCache<List<AnnotatingTerm>> proteinGoTermsCache;
+	private BloomFilter accessionFilter;
+
+	/**
+	 * GO terms annotating a list of accessions together with the proteins annotated by every term, kept as the
+	 * positions of their accessions in the list.
+	 */
+	public static class Annotations {
+
+		private final Map<String, GOTerm> goTermMap = new HashMap<>();
+		private final Map<String, RoaringBitmap> termProteins = new HashMap<>();
+
+		/**
+		 * @return the GO terms found indexed by their ID, without their annotated proteins
+		 */
+		public Map<String, GOTerm> goTermMap(){
+			return goTermMap;
+		}
+
+		/**
+		 * @return positions in the accession list of the proteins annotated by the term, null when none were recorded
+		 */
+		public RoaringBitmap annotatedProteins(String goId){
+			return termProteins.get(goId);
+		}
+	}
+
+	/**
+	 * GO term annotating a protein, as read from the database when the protein is looked up.
+	 */
+	public static final class AnnotatingTerm {
+
+		final String id;
+		final String name;
+		//----only read from the is_a edges of terms missing from the GoDAG, null otherwise----
+		final List<String> parentIds;
+
+		AnnotatingTerm(String id, String name, List<String> parentIds){
+			this.id = id;
+			this.name = name;
+			this.parentIds = parentIds;
+		}
+	}
+
+	public GOAnnotationLookupEngine(TitanGraph titanGraph,
+	                                TitanUniProtGraph titanUniProtGraph,
+	                                GoDAG goDAG,
+	                                int numberOfThreads,
+	                                int batchSize,
+	                                boolean includeProteinInformation,
+	                                LookupCache<com.bio4j.json.uniprot.Protein> proteinInfoCache,
+	                                LookupCache<List<AnnotatingTerm>> proteinGoTermsCache){
+
+		if(numberOfThreads < 1){
+			throw new IllegalArgumentException("The number of threads must be at least 1: " + numberOfThreads);
+		}
+		if(batchSize < 1){
+			throw new IllegalArgumentException("The batch size must be at least 1: " + batchSize);
+		}
+
+		this.titanGraph = titanGraph;
+		this.titanUniProtGraph = titanUniProtGraph;
+		this.goDAG = goDAG;
+		this.numberOfThreads = numberOfThreads;
+		this.batchSize = batchSize;
+		this.includeProteinInformation = includeProteinInformation;
+		this.proteinInfoCache = proteinInfoCache;
+		this.proteinGoTermsCache = proteinGoTermsCache;
+	}
+
+	/**
+	 * @param accessionFilter Bloom filter over the protein accessions of the database, null for none
+	 */
+	public GOAnnotationLookupEngine withAccessionFilter(BloomFilter accessionFilter){
+		this.accessionFilter = accessionFilter;
+		return this;
+	}
+
+	/**
+	 * Finds the GO terms annotating the proteins provided.
+	 * Batch results are merged in submission order so that the output does not depend on thread scheduling.
+	 */
+	public Annotations lookup(List<String> proteinAccessions) throws InterruptedException, ExecutionException {
+
+		long startTime = System.currentTimeMillis();
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		List<Future<Annotations>> batchResults = new ArrayList<>();
+		Annotations annotations = new Annotations();
+
+		try{
+
+			for (int i = 0; i < proteinAccessions.size(); i += batchSize) {
+				int batchStart = i;
+				List<String> batch = proteinAccessions.subList(i, Math.min(i + batchSize, proteinAccessions.size()));
+				batchResults.add(executor.submit(() -> lookupBatch(batch, batchStart)));
+			}
+
+			int batchCounter = 0;
+			for (Future<Annotations> batchResult : batchResults){
+				mergeBatchResult(annotations, batchResult.get());
+				batchCounter++;
+				System.out.println("Batch " + batchCounter + "/" + batchResults.size() + " done");
+			}
+
+		}finally{
+			executor.shutdownNow();
+		}
+
+		for (RoaringBitmap proteins : annotations.termProteins.values()){
+			proteins.runOptimize();
+		}
+
+		long elapsedTime = Math.max(1, System.currentTimeMillis() - startTime);
+		System.out.println(proteinAccessions.size() + " accessions processed in " + elapsedTime + " ms ("
+				+ (proteinAccessions.size() * 1000L / elapsedTime) + " accessions/s)");
+
+		return annotations;
+	}
+
+	/**
+	 * Adds to the term the information of the proteins found at the positions provided of the accession list, read
+	 * through the protein information cache.
+	 */
+	public void addAnnotatedProteins(GOTerm goTerm, RoaringBitmap positions, List<String> proteinAccessions){
+
+		try{
+			IntIterator iterator = positions.getIntIterator();
+			while(iterator.hasNext()){
+				com.bio4j.json.uniprot.Protein proteinJSON = proteinInfoCache.get(proteinAccessions.get(iterator.next()), accession -> {
+					Optional<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> optionalProtein = titanUniProtGraph.proteinAccessionIndex().getVertex(accession);
+					return optionalProtein.isPresent() ? getProteinJSON(optionalProtein.get()) : null;
+				});
+				if(proteinJSON != null){
+					goTerm.addProteinToAnnotatedProteins(proteinJSON);
+				}
+			}
+		}finally{
+			//----the work done is read-only so the transaction bound to this thread is simply closed-----
+			titanGraph.rollback();
+		}
+	}
+
+	/**
+	 * @param batchStart position of the first accession of the batch in the accession list
+	 */
+	private Annotations lookupBatch(List<String> batch, int batchStart){
+
+		Annotations batchAnnotations = new Annotations();
+		Map<String, GOTerm> batchTermMap = batchAnnotations.goTermMap;
+
+		try{
+
+			for (int i = 0; i < batch.size(); i++) {
+
+				String accession = batch.get(i);
+
+				if(accessionFilter != null && !accessionFilter.mightContain(accession)){
+					continue;
+				}
+
+				List<AnnotatingTerm> annotatingTerms = proteinGoTermsCache.get(accession, this::getAnnotatingTerms);
+				if(annotatingTerms == null){
+					if(accessionFilter != null){
+						accessionFilter.recordFalsePositive();
+					}
+					continue;
+				}
+
+				for (AnnotatingTerm annotatingTerm : annotatingTerms){
+
+					GOTerm goJson = batchTermMap.get(annotatingTerm.id);
+
+					if(goJson == null){
+
+						goJson = new GOTerm(annotatingTerm.id, annotatingTerm.name);
+						goJson.setTermCount(0);
+						//----Finding parent IDs------------
+						int termIndex = goDAG.indexOf(annotatingTerm.id);
+						if(termIndex >= 0){
+							goJson.setParentIds(goDAG.parentIds(termIndex));
+						}else{
+							goJson.setParentIds(new LinkedList<>(annotatingTerm.parentIds));
+						}
+						//----------------------------------
+						batchTermMap.put(annotatingTerm.id, goJson);
+					}
+					goJson.setTermCount(goJson.getTermCount() + 1);
+
+					if(includeProteinInformation){
+						batchAnnotations.termProteins.computeIfAbsent(annotatingTerm.id, id -> new RoaringBitmap()).add(batchStart + i);
+					}
+				}
+			}
+
+		}finally{
+			//----the work done is read-only so the transaction bound to this thread is simply closed-----
+			titanGraph.rollback();
+		}
+
+		return batchAnnotations;
+	}
+
+	/**
+	 * @return the GO terms annotating the protein, or null when the accession is not in the database
+	 */
+	private List<AnnotatingTerm> getAnnotatingTerms(String accession){
+
+		Optional<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> optionalProtein = titanUniProtGraph.proteinAccessionIndex().getVertex(accession);
+		if(!optionalProtein.isPresent()){
+			return null;
+		}
+
+		Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> protein = optionalProtein.get();
+		List<AnnotatingTerm> annotatingTerms = new ArrayList<>();
+
+		Optional<Stream<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> goTermStreamOptional = protein.goAnnotation_outV();
+		if(goTermStreamOptional.isPresent()){
+
+			if(includeProteinInformation){
+				//----warming the cache up while the protein is at hand, it is expanded when the terms are written----
+				proteinInfoCache.get(accession, key -> getProteinJSON(protein));
+			}
+
+			List<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> goTermList = goTermStreamOptional.get().collect(Collectors.toList());
+			for (GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> goTerm : goTermList){
+				List<String> parentIds = null;
+				if(goDAG.indexOf(goTerm.id()) < 0){
+					parentIds = new ArrayList<>();
+					Optional<Stream<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> parentsStreamOptional = goTerm.isA_outV();
+					if(parentsStreamOptional.isPresent()){
+						List<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> parentTerms = parentsStreamOptional.get().collect((Collectors.toList()));
+						for (GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> tempTerm : parentTerms){
+							parentIds.add(tempTerm.id());
+						}
+					}
+				}
+				annotatingTerms.add(new AnnotatingTerm(goTerm.id(), goTerm.name(), parentIds));
+			}
+		}
+		return annotatingTerms;
+	}
+
+	private static com.bio4j.json.uniprot.Protein getProteinJSON(Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> protein){
+
+		com.bio4j.json.uniprot.Protein proteinJSON = new com.bio4j.json.uniprot.Protein();
+		proteinJSON.setAccession(protein.accession());
+		proteinJSON.setFullName(protein.fullName());
+		proteinJSON.setName(protein.name());
+		proteinJSON.setShortName(protein.shortName());
+		List<String> geneNamesStList = new LinkedList<>();
+		Optional<Stream<GeneName<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> geneNamesStreamOptional = protein.proteinGeneName_outV();
+		if(geneNamesStreamOptional.isPresent()){
+			List<GeneName<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> geneNames = geneNamesStreamOptional.get().collect((Collectors.toList()));
+			for (GeneName<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> geneName : geneNames){
+				geneNamesStList.add(geneName.name());
+			}
+		}
+		proteinJSON.setGeneNames(geneNamesStList);
+		return proteinJSON;
+	}
+
+	private static void mergeBatchResult(Annotations annotations, Annotations batchAnnotations){
+
+		for (GOTerm batchTerm : batchAnnotations.goTermMap.values()){
+			GOTerm goJson = annotations.goTermMap.get(batchTerm.getId());
+			if(goJson == null){
+				annotations.goTermMap.put(batchTerm.getId(), batchTerm);
+			}else{
+				goJson.setTermCount(goJson.getTermCount() + batchTerm.getTermCount());
+			}
+		}
+		for (Map.Entry<String, RoaringBitmap> entry : batchAnnotations.termProteins.entrySet()){
+			RoaringBitmap proteins = annotations.termProteins.get(entry.getKey());
+			if(proteins == null){
+				annotations.termProteins.put(entry.getKey(), entry.getValue());
+			}else{
+				proteins.or(entry.getValue());
+			}
+		}
+	}
+}
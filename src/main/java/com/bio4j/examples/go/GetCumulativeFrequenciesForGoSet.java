@@ -2,39 +2,34 @@
 This program calculates cumulative frequencies for the GoSet passed as a JSON input file.
 The output of the program is another JSON file with the cumulative values added to all terms.
 
+The input file is streamed twice through GoSetJsonReader, so the GoSet is never loaded at once: the first pass only
+keeps the count of every term _(or, for distinct_proteins, a compressed bitmap of its annotated proteins)_, and the
+second one writes every term with its cumulative count as soon as it is read.
+
 The program expects the following parameters:
 
 1. Bio4j DB folder
 2. Input JSON file including a GoSet
 3. Output JSON file including the GO annotation set with cumulative frequencies
+4. Cumulative count semantics _(optional, per_path by default)_:
+    * per_path: terms add their count to an ancestor once for every path leading to it
+    * per_ancestor: terms add their count to each of their ancestors exactly once
+    * distinct_proteins: cumulative counts are the number of distinct proteins annotated by the term or any of its
+    descendants _(the input GoSet must include the annotated proteins of every term)_
 
  */
 
 package com.bio4j.examples.go;
 
+import com.bio4j.examples.util.Bio4jGraph;
+import com.bio4j.examples.util.Bio4jSessionFactory;
+import com.bio4j.examples.util.ExecutionFailedException;
 import com.bio4j.json.go.GOTerm;
-import com.bio4j.json.go.GoSet;
-import com.bio4j.model.go.vertices.GoTerm;
-import com.bio4j.titan.model.go.TitanGoGraph;
-import com.bio4j.titan.model.uniprot.TitanUniProtGraph;
-import com.bio4j.titan.model.uniprot_go.TitanUniProtGoGraph;
-import com.bio4j.titan.util.DefaultTitanGraph;
 import com.era7.bioinfo.bioinfoutil.Executable;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.thinkaurelius.titan.core.TitanEdge;
-import com.thinkaurelius.titan.core.TitanFactory;
-import com.thinkaurelius.titan.core.TitanGraph;
-import com.thinkaurelius.titan.core.TitanVertex;
-import com.thinkaurelius.titan.core.schema.EdgeLabelMaker;
-import com.thinkaurelius.titan.core.schema.VertexLabelMaker;
-import org.apache.commons.configuration.BaseConfiguration;
-import org.apache.commons.configuration.Configuration;
+import org.roaringbitmap.RoaringBitmap;
 
 import java.io.*;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class GetCumulativeFrequenciesForGoSet implements Executable {
 
@@ -49,84 +44,90 @@ public class GetCumulativeFrequenciesForGoSet implements Executable {
 
 	public static void main(String[] args) {
 
-		if (args.length != 3) {
+		if ((args.length != 3 && args.length != 4) ||
+				(args.length == 4 && CumulativeCountPropagator.Semantics.fromName(args[3]) == null)) {
 			System.out.println("This program expects the following parameters:\n"
 					+ "1. Bio4j DB folder\n"
 					+ "2. Input JSON file including a GoSet\n"
-					+ "3. Output JSON file including the GO annotation set with cumulative frequencies");
+					+ "3. Output JSON file including the GO annotation set with cumulative frequencies\n"
+					+ "4. Cumulative count semantics: per_path/per_ancestor/distinct_proteins (optional, per_path by default)");
 		} else {
 
 			String dbFolder = args[0];
 			String inputFileSt = args[1];
 			String outputFileSt = args[2];
+			CumulativeCountPropagator.Semantics semantics = CumulativeCountPropagator.Semantics.PER_PATH;
+			if(args.length == 4){
+				semantics = CumulativeCountPropagator.Semantics.fromName(args[3]);
+			}
 
-			//----------DB configuration------------------
-			Configuration conf = new BaseConfiguration();
-			conf.setProperty("storage.directory", dbFolder);
-			conf.setProperty("storage.backend", "berkeleyje");
-			//-------creating graph handlers---------------------
-			TitanGraph titanGraph = TitanFactory.open(conf);
-			DefaultTitanGraph defGraph = new DefaultTitanGraph(titanGraph);
-
-			System.out.println("Creating the graph managers....");
-
-			//====================================================================================
-			TitanUniProtGraph titanUniProtGraph = new TitanUniProtGraph(defGraph);
-			TitanGoGraph titanGoGraph = new TitanGoGraph(defGraph);
-
-			TitanUniProtGoGraph titanUniProtGoGraph = new TitanUniProtGoGraph(defGraph, titanUniProtGraph, titanGoGraph);
-
-			titanGoGraph.withUniProtGoGraph(titanUniProtGoGraph);
-			titanUniProtGraph.withUniProtGoGraph(titanUniProtGoGraph);
-			//====================================================================================
-
-			System.out.println("Done!");
+			File inputFile = new File(inputFileSt);
+			boolean distinctProteins = semantics == CumulativeCountPropagator.Semantics.DISTINCT_PROTEINS;
 
 			try{
 
 				System.out.println("Reading JSON input file...");
-				BufferedReader reader = new BufferedReader(new FileReader(new File(inputFileSt)));
-				Gson gson = new GsonBuilder().setPrettyPrinting().create();
-				GoSet goSet = gson.fromJson(reader, GoSet.class);
-
-				Set<GOTerm> goTermSet = goSet.getGoTerms();
-				Map<String, Integer> goCumulativeFrequencies = new HashMap<>();
 				Map<String, Integer> goFrequencies = new HashMap<>();
-
-				for (GOTerm goTerm : goTermSet){
-					goCumulativeFrequencies.put(goTerm.getId(), goTerm.getTermCount());
-					goFrequencies.put(goTerm.getId(), goTerm.getTermCount());
+				Map<String, Integer> accessionToIndex = new HashMap<>();
+				Map<String, RoaringBitmap> termProteins = new HashMap<>();
+				int termsWithoutProteins = 0;
+
+				try (GoSetJsonReader goSetReader = new GoSetJsonReader(inputFile)){
+					while(goSetReader.hasNext()){
+						GOTerm goTerm = goSetReader.next();
+						goFrequencies.put(goTerm.getId(), goTerm.getTermCount());
+						if(distinctProteins && !addTermProteins(goTerm, accessionToIndex, termProteins)){
+							termsWithoutProteins++;
+						}
+					}
 				}
+				System.out.println("Done! (" + goFrequencies.size() + " terms)");
 
-				System.out.println("Calculating cumulative frequencies....");
-
-				for(String goId : goCumulativeFrequencies.keySet()){
-					Optional<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> goTermOptional = titanGoGraph.goTermIdIndex().getVertex(goId);
-					if(goTermOptional.isPresent()){
-						GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> goTerm = goTermOptional.get();
-						updateCumulativeFrequenciesWithCountOfTerm(goTerm, goCumulativeFrequencies, goFrequencies.get(goId));
+				if(distinctProteins){
+					if(termsWithoutProteins > 0){
+						System.out.println("Warning: " + termsWithoutProteins + " terms do not include their annotated proteins, "
+								+ "their distinct protein counts will be 0 (was the GoSet created including protein information?)");
 					}
+					System.out.println(accessionToIndex.size() + " distinct proteins found");
 				}
-				System.out.println("Done! :D");
 
-				System.out.println("Closing the database...");
-				titanGraph.shutdown();
-				System.out.println("Done!");
+				System.out.println("Loading the GO hierarchy...");
+				//----the cache file is stored next to the DB folder, also when a properties file was provided----
+				String storageDirectory = Bio4jSessionFactory.storageDirectory(dbFolder);
+				GoDAG goDAG = storageDirectory == null ? null : GoDAGCache.loadIfValid(storageDirectory);
+				if(goDAG != null){
+					System.out.println("GO hierarchy read from cache file " + GoDAGCache.cacheFile(storageDirectory).getName());
+				}else{
+					goDAG = loadGoDAGFromDatabase(dbFolder, storageDirectory);
+				}
+				System.out.println("Done! (" + goDAG.size() + " terms, " + goDAG.numberOfEdges() + " is_a relationships)");
 
-				for (GOTerm goTerm : goTermSet){
-					goTerm.setCumulativeCount(goCumulativeFrequencies.get(goTerm.getId()));
+				System.out.println("Calculating cumulative frequencies (" + semantics.name().toLowerCase() + ")....");
+
+				long startTime = System.currentTimeMillis();
+				Map<String, Integer> goCumulativeFrequencies;
+				if(distinctProteins){
+					goCumulativeFrequencies = new CumulativeCountPropagator(goDAG).propagateDistinctProteins(termProteins);
+				}else{
+					goCumulativeFrequencies = new CumulativeCountPropagator(goDAG).propagate(goFrequencies, semantics);
 				}
+				System.out.println("Done! :D (" + (System.currentTimeMillis() - startTime) + " ms)");
 
 				System.out.println("Writing output file....");
-				BufferedWriter writer = new BufferedWriter(new FileWriter(new File(outputFileSt)));
-				writer.write(gson.toJson(goSet));
-				System.out.println("Closing output file...");
-				writer.close();
+				try (GoSetJsonReader goSetReader = new GoSetJsonReader(inputFile);
+				     GoSetJsonWriter goSetWriter = new GoSetJsonWriter(new File(outputFileSt), true)){
+					while(goSetReader.hasNext()){
+						GOTerm goTerm = goSetReader.next();
+						goTerm.setCumulativeCount(goCumulativeFrequencies.get(goTerm.getId()));
+						goSetWriter.writeTerm(goTerm);
+					}
+					System.out.println("Closing output file...");
+				}
 
 				System.out.println("The output file was created successfully!!");
 
-			}catch(Exception e){
-				e.printStackTrace();
+			}catch(IOException e){
+				throw new ExecutionFailedException(GetCumulativeFrequenciesForGoSet.class.getSimpleName(), e);
 			}
 
 
@@ -134,22 +135,60 @@ public class GetCumulativeFrequenciesForGoSet implements Executable {
 
 	}
 
-	private static void updateCumulativeFrequenciesWithCountOfTerm(GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> term,
-	                                                               Map<String, Integer> goCumulativeFrequencies,
-	                                                               int termCount){
+	/**
+	 * Stores the proteins of the term as a compressed bitmap, mapping every protein accession found in the GoSet to a
+	 * dense int, so that the protein objects can be dropped as soon as the term has been read.
+	 *
+	 * @return false when the term is annotated to some protein but does not include its annotated proteins
+	 */
+	private static boolean addTermProteins(GOTerm goTerm, Map<String, Integer> accessionToIndex, Map<String, RoaringBitmap> termProteins){
+
+		RoaringBitmap proteins = new RoaringBitmap();
+		List<com.bio4j.json.uniprot.Protein> annotatedProteins = goTerm.getAnnotatedProteins();
+		boolean proteinsMissing = annotatedProteins == null || annotatedProteins.isEmpty();
+
+		if(!proteinsMissing){
+			for (com.bio4j.json.uniprot.Protein protein : annotatedProteins){
+				Integer proteinIndex = accessionToIndex.get(protein.getAccession());
+				if(proteinIndex == null){
+					proteinIndex = accessionToIndex.size();
+					accessionToIndex.put(protein.getAccession(), proteinIndex);
+				}
+				proteins.add(proteinIndex);
+			}
+			proteins.runOptimize();
+		}
+		termProteins.put(goTerm.getId(), proteins);
 
-		Optional<Stream<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> streamOptional =  term.isA_outV();
-		if(streamOptional.isPresent()){
+		//----terms with no annotations of their own legitimately have no protein list----
+		return !proteinsMissing || goTerm.getTermCount() <= 0;
+	}
 
-			List<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> termList = streamOptional.get().collect((Collectors.toList()));
-			for (GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> tempTerm : termList){
-				Integer cumulativeFrequency = goCumulativeFrequencies.get(tempTerm.id());
-				if(cumulativeFrequency != null){
-					goCumulativeFrequencies.put(tempTerm.id(), (cumulativeFrequency + termCount));
-				}
-				updateCumulativeFrequenciesWithCountOfTerm(tempTerm, goCumulativeFrequencies, termCount);
+	/**
+	 * @param storageDirectory DB folder the cache file is written next to, null for none
+	 */
+	private static GoDAG loadGoDAGFromDatabase(String dbFolder, String storageDirectory){
+
+		//-------getting the graph handlers---------------------
+		Bio4jGraph bio4jGraph = Bio4jGraph.acquire(dbFolder);
+		GoDAG goDAG;
+		try{
+			goDAG = GoDAG.load(bio4jGraph.goGraph());
+		}finally{
+			bio4jGraph.release();
+		}
+		System.out.println("Done!");
+
+		if(storageDirectory != null){
+			System.out.println("Writing GO cache file " + GoDAGCache.cacheFile(storageDirectory).getName() + "...");
+			try{
+				GoDAGCache.save(goDAG, storageDirectory);
+			}catch(IOException e){
+				//----the cache is only an optimization, e.g. the folder of a shared DB may be read-only----
+				System.out.println("The GO cache file could not be written: " + e.getMessage());
 			}
 		}
 
+		return goDAG;
 	}
 }
@@ -8,38 +8,44 @@ The program expects the following parameters:
 3. Output JSON file including the GO annotation
 4. Include intermediate terms (true/false)
 5. Include all ancestors (true/false)
+6. Include protein information (true/false)
+7. Number of threads used for the accession lookup _(optional, 1 by default)_
+8. Number of accessions per lookup batch _(optional, 1000 by default)_
+9. Compact output (true/false) _(optional, false by default; when true the JSON file is not pretty printed)_
+
+The output file is written term by term so that the whole JSON document is never held in memory. The proteins annotated
+by every term are kept as positions in the accession list while the terms are found, and only expanded into protein
+information when each term is written _(see GOAnnotationLookupEngine)_.
 
  */
 package com.bio4j.examples.go;
 
+import com.bio4j.examples.util.Bio4jGraph;
+import com.bio4j.examples.util.BloomFilter;
+import com.bio4j.examples.util.BloomFilterCache;
+import com.bio4j.examples.util.ExecutionFailedException;
+import com.bio4j.examples.util.LookupCache;
 import com.bio4j.json.go.GOTerm;
-import com.bio4j.json.go.GoSet;
 import com.bio4j.model.go.vertices.GoTerm;
-import com.bio4j.model.uniprot.vertices.GeneName;
-import com.bio4j.model.uniprot.vertices.Protein;
 import com.bio4j.titan.model.go.TitanGoGraph;
 import com.bio4j.titan.model.uniprot.TitanUniProtGraph;
-import com.bio4j.titan.model.uniprot_go.TitanUniProtGoGraph;
 import com.bio4j.titan.util.DefaultTitanGraph;
 import com.era7.bioinfo.bioinfoutil.Executable;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.thinkaurelius.titan.core.TitanEdge;
-import com.thinkaurelius.titan.core.TitanFactory;
 import com.thinkaurelius.titan.core.TitanGraph;
 import com.thinkaurelius.titan.core.TitanVertex;
 import com.thinkaurelius.titan.core.schema.EdgeLabelMaker;
 import com.thinkaurelius.titan.core.schema.VertexLabelMaker;
-import org.apache.commons.configuration.BaseConfiguration;
-import org.apache.commons.configuration.Configuration;
+import org.roaringbitmap.RoaringBitmap;
 
 import java.io.*;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ExecutionException;
 
 public class GetGOAnnotation implements Executable{
 
+	public static final String GO_TERM_CACHE = "goTermIdIndex";
+
 	@Override
 	public void execute(ArrayList<String> array) {
 		String[] args = new String[array.size()];
@@ -51,14 +57,17 @@ public class GetGOAnnotation implements Executable{
 
 	public static void main(String[] args){
 
-		if (args.length != 6) {
+		if (args.length != 6 && args.length != 8 && args.length != 9) {
 			System.out.println("This program expects the following parameters:\n"
 					+ "1. Bio4j DB folder\n"
 					+ "2. Input TSV file including UniProt accessions (one accession per line)\n"
 					+ "3. Output JSON file including the GO annotation \n"
 					+ "4. Include intermediate terms (true/false) \n"
 					+ "5. Include all ancestors (true/false) \n"
-					+ "6. Include protein information (true/false)");
+					+ "6. Include protein information (true/false) \n"
+					+ "7. Number of threads used for the accession lookup (optional, 1 by default) \n"
+					+ "8. Number of accessions per lookup batch (optional, 1000 by default) \n"
+					+ "9. Compact output (true/false) (optional, false by default)");
 		} else {
 
 			String dbFolder = args[0];
@@ -67,36 +76,29 @@ public class GetGOAnnotation implements Executable{
 			boolean includeIntermediateTerms = Boolean.parseBoolean(args[3]);
 			boolean includeAllAncestors = Boolean.parseBoolean(args[4]);
 			boolean includeProteinInformation = Boolean.parseBoolean(args[5]);
+			int numberOfThreads = GOAnnotationLookupEngine.DEFAULT_NUMBER_OF_THREADS;
+			int batchSize = GOAnnotationLookupEngine.DEFAULT_BATCH_SIZE;
+			boolean compactOutput = false;
+			if(args.length >= 8){
+				numberOfThreads = Integer.parseInt(args[6]);
+				batchSize = Integer.parseInt(args[7]);
+			}
+			if(args.length == 9){
+				compactOutput = Boolean.parseBoolean(args[8]);
+			}
 
-			//----------DB configuration------------------
-			Configuration conf = new BaseConfiguration();
-			conf.setProperty("storage.directory", dbFolder);
-			conf.setProperty("storage.backend", "berkeleyje");
-			//-------creating graph handlers---------------------
-			TitanGraph titanGraph = TitanFactory.open(conf);
-			DefaultTitanGraph defGraph = new DefaultTitanGraph(titanGraph);
-
-			System.out.println("Creating the graph managers....");
-
-			//====================================================================================
-			TitanUniProtGraph titanUniProtGraph = new TitanUniProtGraph(defGraph);
-			TitanGoGraph titanGoGraph = new TitanGoGraph(defGraph);
-
-			TitanUniProtGoGraph titanUniProtGoGraph = new TitanUniProtGoGraph(defGraph, titanUniProtGraph, titanGoGraph);
-
-			titanGoGraph.withUniProtGoGraph(titanUniProtGoGraph);
-			titanUniProtGraph.withUniProtGoGraph(titanUniProtGoGraph);
-			//====================================================================================
-
-			System.out.println("Done!");
+			//-------getting the graph handlers---------------------
+			Bio4jGraph bio4jGraph = Bio4jGraph.acquire(dbFolder);
+			TitanGraph titanGraph = bio4jGraph.titanGraph();
+			TitanUniProtGraph titanUniProtGraph = bio4jGraph.uniProtGraph();
+			TitanGoGraph titanGoGraph = bio4jGraph.goGraph();
+			LookupCache<GoTermInfo> goTermCache = bio4jGraph.lookupCache(GO_TERM_CACHE);
 
 			try {
 
-				List<String> proteinAcessions = new LinkedList<>();
-				Map<String, GOTerm> goTermMap = new HashMap<>();
+				List<String> proteinAcessions = new ArrayList<>();
 
 				BufferedReader reader = new BufferedReader(new FileReader(new File(inputFileSt)));
-				BufferedWriter writer = new BufferedWriter(new FileWriter(new File(outputFileSt)));
 
 				System.out.println("Retrieving protein IDs...");
 				String line;
@@ -106,67 +108,29 @@ public class GetGOAnnotation implements Executable{
 				reader.close();
 				System.out.println("Done!");
 
-				System.out.println("Finding GO annotations....");
+				System.out.println("Loading the GO hierarchy...");
+				//----cache and filter files are stored next to the DB folder, also when a properties file was provided----
+				String storageDirectory = bio4jGraph.storageDirectory();
+				GoDAG goDAG = GoDAGCache.loadOrBuild(storageDirectory, titanGoGraph);
+				titanGraph.rollback();
+				System.out.println("Done! (" + goDAG.size() + " terms, " + goDAG.numberOfEdges() + " is_a relationships)");
 
-				for (String accession : proteinAcessions){
-
-					Optional<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> optionalProtein = titanUniProtGraph.proteinAccessionIndex().getVertex(accession);
-					if(optionalProtein.isPresent()){
-
-						Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> protein = optionalProtein.get();
-
-						System.out.println("protein.accession() = " + protein.accession());
-
-						Optional<Stream<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> goTermStreamOptional = protein.goAnnotation_outV();
-
-						if(goTermStreamOptional.isPresent()){
-
-							List<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> goTermList = goTermStreamOptional.get().collect(Collectors.toList());
-							for (GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> goTerm : goTermList){
-
-								System.out.println("goTerm.id() = " + goTerm.id());
-								GOTerm goJson = goTermMap.get(goTerm.id());
-
-								if(goJson == null){
-
-									goJson = new GOTerm(goTerm.id(), goTerm.name());
-									goJson.setTermCount(0);
-									//----Finding parent IDs------------
-									goJson.setParentIds(new LinkedList<String>());
-									Optional<Stream<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> parentsStreamOptional = goTerm.isA_outV();
-									if(parentsStreamOptional.isPresent()){
-										List<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> parentTerms = parentsStreamOptional.get().collect((Collectors.toList()));
-										List<String> parentIds = goJson.getParentIds();
-										for (GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> tempTerm : parentTerms){
-											parentIds.add(tempTerm.id());
-										}
-									}
-									//----------------------------------
-									goTermMap.put(goTerm.id(), goJson);
-								}
-								goJson.setTermCount(goJson.getTermCount() + 1);
-
-								if(includeProteinInformation){
-									com.bio4j.json.uniprot.Protein proteinJSON = new com.bio4j.json.uniprot.Protein();
-									proteinJSON.setAccession(protein.accession());
-									proteinJSON.setFullName(protein.fullName());
-									proteinJSON.setName(protein.name());
-									proteinJSON.setShortName(protein.shortName());
-									Optional<Stream<GeneName<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> geneNamesStreamOptional = protein.proteinGeneName_outV();
-									List<GeneName<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> geneNames = geneNamesStreamOptional.get().collect((Collectors.toList()));
-									List<String> geneNamesStList = new LinkedList<>();
-									for (GeneName<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> geneName : geneNames){
-										geneNamesStList.add(geneName.name());
-									}
-									proteinJSON.setGeneNames(geneNamesStList);
-									goJson.addProteinToAnnotatedProteins(proteinJSON);
-								}
-							}
-						}
+				System.out.println("Finding GO annotations....");
 
-					}
+				BloomFilter accessionFilter = storageDirectory == null ? null : BloomFilterCache.loadIfValid(storageDirectory, BloomFilterCache.PROTEIN_ACCESSIONS);
+				if(accessionFilter != null){
+					System.out.println("Using protein accession filter (" + accessionFilter.summary() + ")");
 				}
+
+				GOAnnotationLookupEngine lookupEngine = new GOAnnotationLookupEngine(titanGraph, titanUniProtGraph, goDAG, numberOfThreads, batchSize, includeProteinInformation,
+						bio4jGraph.lookupCache(GOAnnotationLookupEngine.PROTEIN_INFO_CACHE), bio4jGraph.lookupCache(GOAnnotationLookupEngine.PROTEIN_GO_TERMS_CACHE))
+						.withAccessionFilter(accessionFilter);
+				GOAnnotationLookupEngine.Annotations annotations = lookupEngine.lookup(proteinAcessions);
+				Map<String, GOTerm> goTermMap = annotations.goTermMap();
 				System.out.println("Done!");
+				if(accessionFilter != null){
+					System.out.println("Protein accession filter: " + accessionFilter.statsSummary());
+				}
 
 				if(includeAllAncestors){
 
@@ -174,43 +138,23 @@ public class GetGOAnnotation implements Executable{
 
 					//-----------------Retrieving ancestors of all terms with protein annotations---------------------
 					Set<String> termsToBeAdded = new HashSet<>();
-					String[] goIds = goTermMap.keySet().toArray(new String[goTermMap.size()]);
-					for(int i=0; i< goIds.length;i++){
-						String goId = goIds[i];
-						GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> currentTerm = titanGoGraph.goTermIdIndex().getVertex(goId).get();
-						includeAllAncestorsOfTerm(termsToBeAdded, currentTerm, titanGoGraph);
+					for(String goId : goTermMap.keySet()){
+						int term = goDAG.indexOf(goId);
+						if(term >= 0){
+							for(int ancestor : goDAG.ancestors(term)){
+								termsToBeAdded.add(goDAG.id(ancestor));
+							}
+						}
 					}
 					//-----------------------------------------------------------------------------------------------
 
 					//----removing duplicated terms so that counts are not overwritten with zero values----
-					for(String key : goTermMap.keySet()){
-						if(termsToBeAdded.contains(key)){
-							termsToBeAdded.remove(key);
-						}
-					}
+					termsToBeAdded.removeAll(goTermMap.keySet());
 					//---------------------------------------------------------------------------------------
 
 					for(String termToBeAdded : termsToBeAdded){
-						Optional<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> optionalTerm = titanGoGraph.goTermIdIndex().getVertex(termToBeAdded);
-						if(optionalTerm.isPresent()){
-							GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> goTerm = optionalTerm.get();
-							GOTerm goJson = new GOTerm(goTerm.id(), goTerm.name());
-							goJson.setTermCount(0);
-							goJson.setComment(goTerm.comment());
-							goJson.setSynonym(goTerm.synonym());
-							goJson.setDefinition(goTerm.definition());
-							//----Finding parent IDs------------
-							goJson.setParentIds(new LinkedList<String>());
-							Optional<Stream<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> parentsStreamOptional = goTerm.isA_outV();
-							if(parentsStreamOptional.isPresent()){
-								List<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> parentTerms = parentsStreamOptional.get().collect((Collectors.toList()));
-								List<String> parentIds = goJson.getParentIds();
-								for (GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> tempTerm : parentTerms){
-									parentIds.add(tempTerm.id());
-								}
-							}
-
-							//----------------------------------
+						GOTerm goJson = getGOTermJSON(termToBeAdded, goDAG, titanGoGraph, goTermCache);
+						if(goJson != null){
 							goTermMap.put(goJson.getId(), goJson);
 						}
 					}
@@ -227,10 +171,10 @@ public class GetGOAnnotation implements Executable{
 
 						String[] goTermMapArray = goTermMap.keySet().toArray(new String[goTermMap.size()]);
 						for(int i=0; i<goTermMapArray.length;i++){
-							String goId = goTermMapArray[i];
-							Set<String> tempSetToBeAdded = new HashSet<>();
-							GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> currentTerm = titanGoGraph.goTermIdIndex().getVertex(goId).get();
-							addIntermediateTermsToTermMap(goTermMap, termsToBeAdded, currentTerm, titanGoGraph);
+							int currentTerm = goDAG.indexOf(goTermMapArray[i]);
+							if(currentTerm >= 0){
+								addIntermediateTermsToTermMap(goTermMap, termsToBeAdded, currentTerm, goDAG, titanGoGraph, goTermCache);
+							}
 						}
 
 						System.out.println("Done! :)");
@@ -239,26 +183,29 @@ public class GetGOAnnotation implements Executable{
 				}
 
 
-				Set<GOTerm> goTermSet = new HashSet<>();
-				for(String goId : goTermMap.keySet()){
-					goTermSet.add(goTermMap.get(goId));
-				}
-
-				GoSet goSet = new GoSet(goTermSet);
-
 				System.out.println("Writing output file....");
-				Gson gson = new GsonBuilder().setPrettyPrinting().create();
-				writer.write(gson.toJson(goSet));
-				System.out.println("Closing output file...");
-				writer.close();
+				try (GoSetJsonWriter goSetWriter = new GoSetJsonWriter(new File(outputFileSt), !compactOutput)){
+					Iterator<GOTerm> iterator = goTermMap.values().iterator();
+					while(iterator.hasNext()){
+						GOTerm goTerm = iterator.next();
+						RoaringBitmap annotatedProteins = annotations.annotatedProteins(goTerm.getId());
+						if(annotatedProteins != null){
+							lookupEngine.addAnnotatedProteins(goTerm, annotatedProteins, proteinAcessions);
+						}
+						goSetWriter.writeTerm(goTerm);
+						//----the term and its proteins can be garbage collected while the rest of the output is written----
+						iterator.remove();
+					}
+					System.out.println("Closing output file...");
+					System.out.println(goSetWriter.numberOfTermsWritten() + " terms written");
+				}
 
-			} catch (IOException e) {
-				e.printStackTrace();
+			} catch (IOException | InterruptedException | ExecutionException e) {
+				throw new ExecutionFailedException(GetGOAnnotation.class.getSimpleName(), e);
+			} finally {
+				bio4jGraph.release();
 			}
 
-
-			System.out.println("Closing the database...");
-			titanGraph.shutdown();
 			System.out.println("Done ;)");
 		}
 
@@ -266,62 +213,77 @@ public class GetGOAnnotation implements Executable{
 
 	private static void addIntermediateTermsToTermMap(Map<String, GOTerm>  existingTermsMap,
 	                                              Set<String> termsToBeAdded,
-	                                              GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> currentTerm,
-	                                              TitanGoGraph titanGoGraph ){
-
-		Optional<Stream<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> parentsOptionalStream = currentTerm.isA_outV();
-		if(parentsOptionalStream.isPresent()){
-			List<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> parents = parentsOptionalStream.get().collect(Collectors.toList());
-			for (GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> parent : parents){
-				if(existingTermsMap.containsKey(parent.id())){
-					//====================================================================================================
-					//if we already reached another term that was included in the initial set, it could mean that there are a set of intermediate terms
-					//that should be added to the main set
-					for(String termToBeAdded : termsToBeAdded){
-						Optional<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> optionalTerm = titanGoGraph.goTermIdIndex().getVertex(termToBeAdded);
-						if(optionalTerm.isPresent()){
-							GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> goTerm = optionalTerm.get();
-							GOTerm goJson = new GOTerm(goTerm.id(), goTerm.name());
-							goJson.setTermCount(0);
-							goJson.setComment(goTerm.comment());
-							goJson.setSynonym(goTerm.synonym());
-							goJson.setDefinition(goTerm.definition());
-							//----Finding parent IDs------------
-							goJson.setParentIds(new LinkedList<String>());
-							Optional<Stream<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> parentsStreamOptional = goTerm.isA_outV();
-							if(parentsStreamOptional.isPresent()){
-								List<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> parentTerms = parentsStreamOptional.get().collect((Collectors.toList()));
-								List<String> parentIds = goJson.getParentIds();
-								for (GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> tempTerm : parentTerms){
-									parentIds.add(tempTerm.id());
-								}
-							}
-							//----------------------------------
+	                                              int currentTerm,
+	                                              GoDAG goDAG,
+	                                              TitanGoGraph titanGoGraph,
+	                                              LookupCache<GoTermInfo> goTermCache){
+
+		for (int k = 0; k < goDAG.parentCount(currentTerm); k++) {
+			int parent = goDAG.parent(currentTerm, k);
+			String parentId = goDAG.id(parent);
+			if(existingTermsMap.containsKey(parentId)){
+				//====================================================================================================
+				//if we already reached another term that was included in the initial set, it could mean that there are a set of intermediate terms
+				//that should be added to the main set
+				for(String termToBeAdded : termsToBeAdded){
+					if(!existingTermsMap.containsKey(termToBeAdded)){
+						GOTerm goJson = getGOTermJSON(termToBeAdded, goDAG, titanGoGraph, goTermCache);
+						if(goJson != null){
 							existingTermsMap.put(goJson.getId(), goJson);
 						}
 					}
-					//====================================================================================================
-				}else{
-					termsToBeAdded.add(parent.id());
-					addIntermediateTermsToTermMap(existingTermsMap, termsToBeAdded, parent, titanGoGraph);
 				}
+				//====================================================================================================
+			}else{
+				termsToBeAdded.add(parentId);
+				addIntermediateTermsToTermMap(existingTermsMap, termsToBeAdded, parent, goDAG, titanGoGraph, goTermCache);
 			}
 		}
 
 	}
 
-	private static void includeAllAncestorsOfTerm(Set<String> terms,
-	                                              GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> currentTerm,
-	                                              TitanGoGraph titanGoGraph){
-
-		Optional<Stream<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> optionalStreamParents = currentTerm.isA_outV();
-		if(optionalStreamParents.isPresent()){
-			List<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> goTermParentsList = optionalStreamParents.get().collect((Collectors.toList()));
-			for (GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> parentTerm : goTermParentsList){
-				terms.add(parentTerm.id());
-				includeAllAncestorsOfTerm(terms, parentTerm, titanGoGraph);
-			}
+	/**
+	 * Builds the JSON representation of a term with no annotations; parent IDs are taken from the GO snapshot
+	 * while the rest of the term information is retrieved from the database _(through the lookup cache)_.
+	 */
+	private static GOTerm getGOTermJSON(String goId, GoDAG goDAG, TitanGoGraph titanGoGraph, LookupCache<GoTermInfo> goTermCache){
+
+		GoTermInfo termInfo = goTermCache.get(goId, id -> {
+			Optional<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> optionalTerm = titanGoGraph.goTermIdIndex().getVertex(id);
+			return optionalTerm.isPresent() ? new GoTermInfo(optionalTerm.get()) : null;
+		});
+
+		if(termInfo != null){
+			GOTerm goJson = new GOTerm(termInfo.id, termInfo.name);
+			goJson.setTermCount(0);
+			goJson.setComment(termInfo.comment);
+			goJson.setSynonym(termInfo.synonym);
+			goJson.setDefinition(termInfo.definition);
+			int term = goDAG.indexOf(goId);
+			goJson.setParentIds(term >= 0 ? goDAG.parentIds(term) : new LinkedList<String>());
+			return goJson;
+		}else{
+			return null;
 		}
+	}
 
+	/**
+	 * Term properties read from the database, kept in the lookup cache instead of the transaction-bound vertex.
+	 */
+	static final class GoTermInfo {
+
+		final String id;
+		final String name;
+		final String comment;
+		final String synonym;
+		final String definition;
+
+		GoTermInfo(GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> goTerm){
+			this.id = goTerm.id();
+			this.name = goTerm.name();
+			this.comment = goTerm.comment();
+			this.synonym = goTerm.synonym();
+			this.definition = goTerm.definition();
+		}
 	}
 }
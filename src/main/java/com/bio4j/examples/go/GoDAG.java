@@ -0,0 +1,297 @@
+/*
+Immutable in-memory snapshot of the Gene Ontology is_a hierarchy.
+
+Terms are identified by dense int indexes; parent and children relationships are stored in CSR form _(one offsets
+array plus one flat array of term indexes for each direction)_ so that parent, children, ancestors and descendants
+queries are answered without touching the database.
+The snapshot is loaded once from the TitanGoGraph by walking the is_a edges downwards from the three sub-ontology
+root terms. Since is_a edges never cross sub-ontologies, the namespace of every term is the one of the root it was
+reached from.
+
+ */
+package com.bio4j.examples.go;
+
+import com.bio4j.model.go.vertices.GoTerm;
+import com.bio4j.titan.model.go.TitanGoGraph;
+import com.bio4j.titan.util.DefaultTitanGraph;
+import com.thinkaurelius.titan.core.TitanEdge;
+import com.thinkaurelius.titan.core.TitanVertex;
+import com.thinkaurelius.titan.core.schema.EdgeLabelMaker;
+import com.thinkaurelius.titan.core.schema.VertexLabelMaker;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class GoDAG {
+
+	public static final String BIOLOGICAL_PROCESS_ID = "GO:0008150";
+	public static final String MOLECULAR_FUNCTION_ID = "GO:0003674";
+	public static final String CELLULAR_COMPONENT_ID = "GO:0005575";
+	public static final String[] ROOT_TERM_IDS = {BIOLOGICAL_PROCESS_ID, MOLECULAR_FUNCTION_ID, CELLULAR_COMPONENT_ID};
+	public static final String[] NAMESPACES = {"biological_process", "molecular_function", "cellular_component"};
+
+	private final String[] ids;
+	private final String[] names;
+	private final byte[] namespaces;
+	private final Map<String, Integer> idToIndex;
+
+	private final int[] parentOffsets;
+	private final int[] parents;
+	private final int[] childOffsets;
+	private final int[] children;
+
+	/**
+	 * @param ids term IDs indexed by term
+	 * @param names term names indexed by term
+	 * @param namespaces term namespaces indexed by term _(positions in NAMESPACES)_
+	 * @param parentOffsets parents of term t are stored in parents[parentOffsets[t]..parentOffsets[t+1])
+	 * @param parents flat array of parent term indexes
+	 */
+	GoDAG(String[] ids, String[] names, byte[] namespaces, int[] parentOffsets, int[] parents){
+
+		this.ids = ids;
+		this.names = names;
+		this.namespaces = namespaces;
+		this.parentOffsets = parentOffsets;
+		this.parents = parents;
+
+		this.idToIndex = new HashMap<>(ids.length * 2);
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = ids[i].intern();
+			if(names[i] != null){
+				names[i] = names[i].intern();
+			}
+			idToIndex.put(ids[i], i);
+		}
+
+		//----building the children arrays by counting the incoming is_a edges of every term----
+		childOffsets = new int[ids.length + 1];
+		for (int parent : parents){
+			childOffsets[parent + 1]++;
+		}
+		for (int i = 0; i < ids.length; i++) {
+			childOffsets[i + 1] += childOffsets[i];
+		}
+		children = new int[parents.length];
+		int[] nextChildPosition = Arrays.copyOf(childOffsets, ids.length);
+		for (int term = 0; term < ids.length; term++) {
+			for (int k = parentOffsets[term]; k < parentOffsets[term + 1]; k++) {
+				children[nextChildPosition[parents[k]]++] = term;
+			}
+		}
+	}
+
+	/**
+	 * Loads the whole is_a hierarchy from the GO graph provided.
+	 * Obsolete terms are not reachable from the root terms and hence are not included.
+	 */
+	public static GoDAG load(TitanGoGraph titanGoGraph){
+
+		List<String> ids = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		List<Byte> namespaces = new ArrayList<>();
+		Map<String, Integer> idToIndex = new HashMap<>();
+		//----is_a edges stored as (child, parent) pairs----
+		int[] edges = new int[1024];
+		int edgeCounter = 0;
+
+		LinkedList<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> queue = new LinkedList<>();
+
+		for (byte namespace = 0; namespace < ROOT_TERM_IDS.length; namespace++){
+			String rootId = ROOT_TERM_IDS[namespace];
+			Optional<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> rootOptional = titanGoGraph.goTermIdIndex().getVertex(rootId);
+			if(rootOptional.isPresent()){
+				GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> root = rootOptional.get();
+				idToIndex.put(root.id(), ids.size());
+				ids.add(root.id());
+				names.add(root.name());
+				namespaces.add(namespace);
+				queue.add(root);
+			}else{
+				System.out.println("The GO root term " + rootId + " could not be found... :|");
+			}
+		}
+
+		while(!queue.isEmpty()){
+
+			GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> currentTerm = queue.poll();
+			int currentIndex = idToIndex.get(currentTerm.id());
+
+			Optional<Stream<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> childrenStreamOptional = currentTerm.isA_inV();
+			if(childrenStreamOptional.isPresent()){
+				List<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> childrenTerms = childrenStreamOptional.get().collect(Collectors.toList());
+				for (GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> childTerm : childrenTerms){
+					Integer childIndex = idToIndex.get(childTerm.id());
+					if(childIndex == null){
+						childIndex = ids.size();
+						idToIndex.put(childTerm.id(), childIndex);
+						ids.add(childTerm.id());
+						names.add(childTerm.name());
+						namespaces.add(namespaces.get(currentIndex));
+						queue.add(childTerm);
+					}
+					if(edgeCounter * 2 + 2 > edges.length){
+						edges = Arrays.copyOf(edges, edges.length * 2);
+					}
+					edges[edgeCounter * 2] = childIndex;
+					edges[edgeCounter * 2 + 1] = currentIndex;
+					edgeCounter++;
+				}
+			}
+		}
+
+		//----packing the edges as parent lists (CSR)----
+		int size = ids.size();
+		int[] parentOffsets = new int[size + 1];
+		for (int i = 0; i < edgeCounter; i++) {
+			parentOffsets[edges[i * 2] + 1]++;
+		}
+		for (int i = 0; i < size; i++) {
+			parentOffsets[i + 1] += parentOffsets[i];
+		}
+		int[] parents = new int[edgeCounter];
+		int[] nextParentPosition = Arrays.copyOf(parentOffsets, size);
+		for (int i = 0; i < edgeCounter; i++) {
+			parents[nextParentPosition[edges[i * 2]]++] = edges[i * 2 + 1];
+		}
+
+		byte[] namespacesArray = new byte[size];
+		for (int i = 0; i < size; i++) {
+			namespacesArray[i] = namespaces.get(i);
+		}
+
+		return new GoDAG(ids.toArray(new String[size]), names.toArray(new String[size]), namespacesArray, parentOffsets, parents);
+	}
+
+	public int size(){
+		return ids.length;
+	}
+
+	public int numberOfEdges(){
+		return parents.length;
+	}
+
+	/**
+	 * @return index of the term with the ID provided or -1 when the term is not included in the snapshot
+	 */
+	public int indexOf(String goId){
+		Integer index = idToIndex.get(goId);
+		return index == null ? -1 : index;
+	}
+
+	public boolean contains(String goId){
+		return idToIndex.containsKey(goId);
+	}
+
+	public String id(int term){
+		return ids[term];
+	}
+
+	public String name(int term){
+		return names[term];
+	}
+
+	public String namespace(int term){
+		return NAMESPACES[namespaces[term]];
+	}
+
+	public int parentCount(int term){
+		return parentOffsets[term + 1] - parentOffsets[term];
+	}
+
+	public int parent(int term, int k){
+		return parents[parentOffsets[term] + k];
+	}
+
+	public int[] parents(int term){
+		return Arrays.copyOfRange(parents, parentOffsets[term], parentOffsets[term + 1]);
+	}
+
+	public List<String> parentIds(int term){
+		List<String> parentIds = new LinkedList<>();
+		for (int k = parentOffsets[term]; k < parentOffsets[term + 1]; k++) {
+			parentIds.add(ids[parents[k]]);
+		}
+		return parentIds;
+	}
+
+	public int childCount(int term){
+		return childOffsets[term + 1] - childOffsets[term];
+	}
+
+	public int child(int term, int k){
+		return children[childOffsets[term] + k];
+	}
+
+	public int[] children(int term){
+		return Arrays.copyOfRange(children, childOffsets[term], childOffsets[term + 1]);
+	}
+
+	/**
+	 * @return indexes of all the terms reachable through is_a edges from the term provided _(the term itself is not included)_
+	 */
+	public int[] ancestors(int term){
+		return reachable(term, parentOffsets, parents);
+	}
+
+	/**
+	 * @return indexes of all the terms that reach the term provided through is_a edges _(the term itself is not included)_
+	 */
+	public int[] descendants(int term){
+		return reachable(term, childOffsets, children);
+	}
+
+	//----raw arrays, used by GoDAGCache to persist the snapshot----
+	String[] idsArray(){
+		return ids;
+	}
+
+	String[] namesArray(){
+		return names;
+	}
+
+	byte[] namespacesArray(){
+		return namespaces;
+	}
+
+	int[] parentOffsetsArray(){
+		return parentOffsets;
+	}
+
+	int[] parentsArray(){
+		return parents;
+	}
+
+	private int[] reachable(int term, int[] offsets, int[] adjacency){
+
+		BitSet visited = new BitSet(ids.length);
+		int[] stack = new int[16];
+		int stackSize = 0;
+		int[] result = new int[16];
+		int resultSize = 0;
+
+		stack[stackSize++] = term;
+		visited.set(term);
+
+		while(stackSize > 0){
+			int current = stack[--stackSize];
+			for (int k = offsets[current]; k < offsets[current + 1]; k++) {
+				int next = adjacency[k];
+				if(!visited.get(next)){
+					visited.set(next);
+					if(resultSize == result.length){
+						result = Arrays.copyOf(result, resultSize * 2);
+					}
+					result[resultSize++] = next;
+					if(stackSize == stack.length){
+						stack = Arrays.copyOf(stack, stackSize * 2);
+					}
+					stack[stackSize++] = next;
+				}
+			}
+		}
+
+		return Arrays.copyOf(result, resultSize);
+	}
+}
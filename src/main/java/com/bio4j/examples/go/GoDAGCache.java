@@ -0,0 +1,168 @@
+/*
+Binary cache file for the GoDAG snapshot.
+
+The file is stored next to the Bio4j DB folder _(`<DB folder>.go_dag`)_ and memory-mapped when read, so that the GO
+tools can skip the traversal of the GO graph on every run. It is stamped with the fingerprint of the DB folder and
+ignored as soon as the database changes.
+
+File layout _(big-endian)_:
+
+1. Magic number and format version (int, int)
+2. DB folder fingerprint (long)
+3. Number of terms and number of is_a edges (int, int)
+4. Parent offsets (int[terms + 1]) followed by parent term indexes (int[edges])
+5. Term namespaces (byte[terms])
+6. Term IDs and names as length-prefixed UTF-8 strings _(length -1 stands for a null name)_
+
+ */
+package com.bio4j.examples.go;
+
+import com.bio4j.examples.util.DBFolderFingerprint;
+import com.bio4j.titan.model.go.TitanGoGraph;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class GoDAGCache {
+
+	public static final String CACHE_FILE_SUFFIX = ".go_dag";
+	public static final int MAGIC_NUMBER = 0x47444147;
+	public static final int FORMAT_VERSION = 1;
+
+	public static File cacheFile(String dbFolder){
+		return DBFolderFingerprint.siblingFile(dbFolder, CACHE_FILE_SUFFIX);
+	}
+
+	/**
+	 * @return the cached snapshot or null when there is no cache file or it does not match the current DB folder
+	 */
+	public static GoDAG loadIfValid(String dbFolder){
+
+		File cacheFile = cacheFile(dbFolder);
+		if(!cacheFile.exists()){
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)){
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if(buffer.getInt() != MAGIC_NUMBER || buffer.getInt() != FORMAT_VERSION){
+				System.out.println("Ignoring GO cache file " + cacheFile.getName() + " (unknown format)");
+				return null;
+			}
+			if(buffer.getLong() != DBFolderFingerprint.compute(dbFolder)){
+				System.out.println("Ignoring GO cache file " + cacheFile.getName() + " (the DB folder has changed)");
+				return null;
+			}
+
+			int termCount = buffer.getInt();
+			int edgeCount = buffer.getInt();
+
+			int[] parentOffsets = new int[termCount + 1];
+			int[] parents = new int[edgeCount];
+			buffer.asIntBuffer().get(parentOffsets).get(parents);
+			buffer.position(buffer.position() + (parentOffsets.length + parents.length) * 4);
+
+			byte[] namespaces = new byte[termCount];
+			buffer.get(namespaces);
+
+			String[] ids = new String[termCount];
+			String[] names = new String[termCount];
+			for (int i = 0; i < termCount; i++) {
+				ids[i] = readString(buffer);
+				names[i] = readString(buffer);
+			}
+
+			return new GoDAG(ids, names, namespaces, parentOffsets, parents);
+
+		}catch(IOException | RuntimeException e){
+			System.out.println("Ignoring GO cache file " + cacheFile.getName() + " (" + e + ")");
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the snapshot to a temporary file which then replaces the cache file, so that concurrent readers never
+	 * see a partially written cache.
+	 */
+	public static void save(GoDAG goDAG, String dbFolder) throws IOException {
+
+		File cacheFile = cacheFile(dbFolder);
+		File tempFile = new File(cacheFile.getPath() + ".tmp");
+
+		try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16))){
+
+			outputStream.writeInt(MAGIC_NUMBER);
+			outputStream.writeInt(FORMAT_VERSION);
+			outputStream.writeLong(DBFolderFingerprint.compute(dbFolder));
+			outputStream.writeInt(goDAG.size());
+			outputStream.writeInt(goDAG.numberOfEdges());
+
+			for (int offset : goDAG.parentOffsetsArray()){
+				outputStream.writeInt(offset);
+			}
+			for (int parent : goDAG.parentsArray()){
+				outputStream.writeInt(parent);
+			}
+			outputStream.write(goDAG.namespacesArray());
+
+			String[] ids = goDAG.idsArray();
+			String[] names = goDAG.namesArray();
+			for (int i = 0; i < ids.length; i++) {
+				writeString(outputStream, ids[i]);
+				writeString(outputStream, names[i]);
+			}
+		}
+
+		Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the cached snapshot when it is valid; otherwise loads it from the GO graph and refreshes the cache file.
+	 *
+	 * @param dbFolder DB folder the cache file is stored next to, null to always load the snapshot from the GO graph
+	 */
+	public static GoDAG loadOrBuild(String dbFolder, TitanGoGraph titanGoGraph){
+
+		GoDAG goDAG = dbFolder == null ? null : loadIfValid(dbFolder);
+		if(goDAG == null){
+			goDAG = GoDAG.load(titanGoGraph);
+			if(dbFolder == null){
+				return goDAG;
+			}
+			try{
+				save(goDAG, dbFolder);
+			}catch(IOException e){
+				System.out.println("The GO cache file could not be written: " + e.getMessage());
+			}
+		}
+		return goDAG;
+	}
+
+	private static void writeString(DataOutputStream outputStream, String value) throws IOException {
+		if(value == null){
+			outputStream.writeInt(-1);
+		}else{
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			outputStream.writeInt(bytes.length);
+			outputStream.write(bytes);
+		}
+	}
+
+	private static String readString(ByteBuffer buffer){
+		int length = buffer.getInt();
+		if(length < 0){
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,160 @@
+/*
+Builds the parent -> children index of a set of GO terms from their id/parent skeleton.
+
+Terms are identified by the position they were added at. The index is built in a single pass over the terms using
+hash sets, so that building it is linear on the number of terms plus parent references. A term is a root of the
+hierarchy when it has no parents within the set or when any of its parents is missing from it, just as
+TransformGOJSONtoHierarchicalJSON has always done.
+Since terms with several parents are repeated under every one of them in the nested representation, the builder also
+computes how many term occurrences _(and roughly how many bytes)_ a nested output would include.
+
+ */
+package com.bio4j.examples.go;
+
+import java.util.*;
+import java.util.function.IntToLongFunction;
+
+public class GoHierarchyBuilder {
+
+	private final Map<String, Integer> termIndexes = new HashMap<>();
+	private final List<String> termIds = new ArrayList<>();
+	private final List<List<String>> termParentIds = new ArrayList<>();
+
+	private int[][] children = null;
+	private int[] roots = null;
+
+	/**
+	 * @return index of the term, that's to say, the number of terms added before it
+	 */
+	public int addTerm(String id, List<String> parentIds){
+		if(children != null){
+			throw new IllegalStateException("Terms cannot be added once the hierarchy has been built");
+		}
+		int index = termIds.size();
+		termIndexes.put(id, index);
+		termIds.add(id);
+		termParentIds.add(parentIds != null ? parentIds : Collections.<String>emptyList());
+		return index;
+	}
+
+	public void build(){
+
+		List<Set<Integer>> childrenSets = new ArrayList<>(Collections.nCopies(termIds.size(), (Set<Integer>) null));
+		Set<Integer> rootSet = new LinkedHashSet<>();
+		BitSet isChild = new BitSet(termIds.size());
+
+		for (int term = 0; term < termIds.size(); term++){
+			for (String parentId : termParentIds.get(term)){
+				Integer parent = termIndexes.get(parentId);
+				if(parent == null){
+					rootSet.add(term);
+				}else{
+					if(childrenSets.get(parent) == null){
+						childrenSets.set(parent, new LinkedHashSet<Integer>());
+					}
+					childrenSets.get(parent).add(term);
+					isChild.set(term);
+				}
+			}
+		}
+		for (int term = isChild.nextClearBit(0); term < termIds.size(); term = isChild.nextClearBit(term + 1)){
+			rootSet.add(term);
+		}
+
+		children = new int[termIds.size()][];
+		for (int term = 0; term < termIds.size(); term++){
+			children[term] = toArray(childrenSets.get(term));
+		}
+		roots = toArray(rootSet);
+
+		//----the skeleton is not needed anymore----
+		termParentIds.clear();
+	}
+
+	public int size(){
+		return termIds.size();
+	}
+
+	public String id(int term){
+		return termIds.get(term);
+	}
+
+	/**
+	 * @return index of the last term added with the ID provided or -1 when there is none
+	 */
+	public int indexOf(String id){
+		Integer index = termIndexes.get(id);
+		return index == null ? -1 : index;
+	}
+
+	public int[] roots(){
+		checkBuilt();
+		return roots;
+	}
+
+	public int[] children(int term){
+		checkBuilt();
+		return children[term];
+	}
+
+	/**
+	 * @return number of terms a nested representation of the hierarchy would include, repetitions included
+	 */
+	public long nestedTermOccurrences(){
+		return nestedOutputSize(term -> 1);
+	}
+
+	/**
+	 * @param termSizes size of the representation of every term on its own
+	 * @return size of the nested representation of the hierarchy, where every term is repeated once for every path
+	 * leading to it from a root
+	 */
+	public long nestedOutputSize(IntToLongFunction termSizes){
+
+		checkBuilt();
+
+		long[] subtreeSizes = new long[termIds.size()];
+		Arrays.fill(subtreeSizes, -1);
+		long size = 0;
+		for (int root : roots){
+			size += subtreeSize(root, termSizes, subtreeSizes);
+		}
+		return size;
+	}
+
+	private long subtreeSize(int term, IntToLongFunction termSizes, long[] subtreeSizes){
+
+		if(subtreeSizes[term] == -2){
+			throw new IllegalStateException("The is_a relationships of term " + termIds.get(term) + " include a cycle");
+		}
+		if(subtreeSizes[term] >= 0){
+			return subtreeSizes[term];
+		}
+
+		subtreeSizes[term] = -2;
+		long size = termSizes.applyAsLong(term);
+		for (int child : children[term]){
+			size += subtreeSize(child, termSizes, subtreeSizes);
+		}
+		subtreeSizes[term] = size;
+		return size;
+	}
+
+	private void checkBuilt(){
+		if(children == null){
+			throw new IllegalStateException("The hierarchy has not been built yet");
+		}
+	}
+
+	private static int[] toArray(Set<Integer> set){
+		if(set == null){
+			return new int[0];
+		}
+		int[] array = new int[set.size()];
+		int i = 0;
+		for (int value : set){
+			array[i++] = value;
+		}
+		return array;
+	}
+}
@@ -0,0 +1,118 @@
+/*
+Pull-based reader for GoSet JSON files.
+
+Terms are read one at a time from the goTerms array through a Gson JsonReader, so only the term being processed is
+held in memory, no matter how large the file is. Any other fields found in the GoSet object are skipped.
+Since Iterator methods cannot throw checked exceptions, I/O and syntax errors are reported as JsonParseException
+subclasses, as Gson does.
+
+ */
+package com.bio4j.examples.go;
+
+import com.bio4j.json.go.GOTerm;
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.*;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class GoSetJsonReader implements Iterator<GOTerm>, Closeable {
+
+	private final Gson gson = new Gson();
+	private final JsonReader jsonReader;
+	private boolean insideTermsArray = false;
+	private boolean finished = false;
+	private int termCounter = 0;
+
+	public GoSetJsonReader(Reader reader){
+		jsonReader = new JsonReader(reader);
+	}
+
+	public GoSetJsonReader(File inputFile) throws IOException {
+		this(new BufferedReader(new FileReader(inputFile), 1 << 16));
+	}
+
+	@Override
+	public boolean hasNext(){
+		try{
+			if(finished){
+				return false;
+			}
+			if(!insideTermsArray){
+				findTermsArray();
+			}
+			if(!finished && jsonReader.hasNext()){
+				return true;
+			}
+			if(!finished){
+				jsonReader.endArray();
+				insideTermsArray = false;
+				skipRemainingFields();
+			}
+			return false;
+		}catch(MalformedJsonException e){
+			throw new JsonSyntaxException(e);
+		}catch(IOException e){
+			throw new JsonIOException(e);
+		}
+	}
+
+	@Override
+	public GOTerm next(){
+		if(!hasNext()){
+			throw new NoSuchElementException();
+		}
+		termCounter++;
+		return gson.fromJson(jsonReader, GOTerm.class);
+	}
+
+	@Override
+	public void remove(){
+		throw new UnsupportedOperationException();
+	}
+
+	public int numberOfTermsRead(){
+		return termCounter;
+	}
+
+	@Override
+	public void close() throws IOException {
+		jsonReader.close();
+	}
+
+	/**
+	 * Moves the reader to the first element of the goTerms array, skipping any other GoSet fields found before it.
+	 */
+	private void findTermsArray() throws IOException {
+
+		if(jsonReader.peek() == JsonToken.BEGIN_OBJECT){
+			jsonReader.beginObject();
+		}
+		while(jsonReader.hasNext()){
+			String name = jsonReader.nextName();
+			if(name.equals(GoSetJsonWriter.GO_TERMS_FIELD) && jsonReader.peek() == JsonToken.BEGIN_ARRAY){
+				jsonReader.beginArray();
+				insideTermsArray = true;
+				return;
+			}
+			jsonReader.skipValue();
+		}
+		//----no goTerms array, the GoSet is empty----
+		jsonReader.endObject();
+		finished = true;
+	}
+
+	private void skipRemainingFields() throws IOException {
+		while(jsonReader.hasNext()){
+			jsonReader.nextName();
+			jsonReader.skipValue();
+		}
+		jsonReader.endObject();
+		finished = true;
+	}
+}
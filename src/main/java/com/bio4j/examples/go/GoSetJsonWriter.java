@@ -0,0 +1,60 @@
+/*
+Streaming writer for GoSet JSON files.
+
+Terms are serialized one at a time straight into the output through a Gson JsonWriter, so the whole document is
+never materialized as a single String. The resulting file has the same structure as the one produced by
+serializing a GoSet object and hence it can be read back by all the GoSet tools.
+Pretty printing can be disabled to get compact output files.
+
+ */
+package com.bio4j.examples.go;
+
+import com.bio4j.json.go.GOTerm;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+
+public class GoSetJsonWriter implements Closeable {
+
+	public static final String GO_TERMS_FIELD = "goTerms";
+	public static final String PRETTY_PRINTING_INDENT = "  ";
+
+	private final Gson gson = new Gson();
+	private final JsonWriter jsonWriter;
+	private int termCounter = 0;
+
+	public GoSetJsonWriter(Writer writer, boolean prettyPrinting) throws IOException {
+
+		jsonWriter = new JsonWriter(writer);
+		if(prettyPrinting){
+			jsonWriter.setIndent(PRETTY_PRINTING_INDENT);
+		}
+		jsonWriter.beginObject();
+		jsonWriter.name(GO_TERMS_FIELD);
+		jsonWriter.beginArray();
+	}
+
+	public GoSetJsonWriter(File outputFile, boolean prettyPrinting) throws IOException {
+		this(new BufferedWriter(new FileWriter(outputFile), 1 << 16), prettyPrinting);
+	}
+
+	/**
+	 * Writes the term provided, including its annotated proteins, to the output.
+	 */
+	public void writeTerm(GOTerm goTerm) throws IOException {
+		gson.toJson(goTerm, GOTerm.class, jsonWriter);
+		termCounter++;
+	}
+
+	public int numberOfTermsWritten(){
+		return termCounter;
+	}
+
+	@Override
+	public void close() throws IOException {
+		jsonWriter.endArray();
+		jsonWriter.endObject();
+		jsonWriter.close();
+	}
+}
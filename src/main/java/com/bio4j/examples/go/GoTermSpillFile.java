@@ -0,0 +1,87 @@
+/*
+Temporary file used to keep full GO terms out of the heap while only their index is needed.
+
+Every term appended is stored as compact UTF-8 JSON and identified by the position it was appended at; terms can then
+be read back in any order. The file is deleted when closed.
+
+ */
+package com.bio4j.examples.go;
+
+import com.bio4j.json.go.GOTerm;
+import com.google.gson.Gson;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class GoTermSpillFile implements Closeable {
+
+	private final Gson gson = new Gson();
+	private final File file;
+	private final DataOutputStream outputStream;
+	private RandomAccessFile randomAccessFile = null;
+	private long[] offsets = new long[1024];
+	private int size = 0;
+	private long currentOffset = 0;
+
+	public GoTermSpillFile() throws IOException {
+		file = File.createTempFile("go_terms", ".spill");
+		file.deleteOnExit();
+		outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+	}
+
+	/**
+	 * @return position of the term in the file, used to read it back
+	 */
+	public int append(GOTerm goTerm) throws IOException {
+
+		if(randomAccessFile != null){
+			throw new IllegalStateException("Terms cannot be appended once reading has started");
+		}
+
+		byte[] bytes = gson.toJson(goTerm).getBytes(StandardCharsets.UTF_8);
+		outputStream.write(bytes);
+
+		if(size + 1 >= offsets.length){
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		offsets[size] = currentOffset;
+		currentOffset += bytes.length;
+		offsets[size + 1] = currentOffset;
+		return size++;
+	}
+
+	public GOTerm read(int position) throws IOException {
+
+		if(randomAccessFile == null){
+			outputStream.close();
+			randomAccessFile = new RandomAccessFile(file, "r");
+		}
+
+		byte[] bytes = new byte[(int) (offsets[position + 1] - offsets[position])];
+		randomAccessFile.seek(offsets[position]);
+		randomAccessFile.readFully(bytes);
+		return gson.fromJson(new String(bytes, StandardCharsets.UTF_8), GOTerm.class);
+	}
+
+	/**
+	 * @return size in bytes of the compact JSON representation of the term
+	 */
+	public long length(int position){
+		return offsets[position + 1] - offsets[position];
+	}
+
+	public int size(){
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(randomAccessFile != null){
+			randomAccessFile.close();
+		}else{
+			outputStream.close();
+		}
+		file.delete();
+	}
+}
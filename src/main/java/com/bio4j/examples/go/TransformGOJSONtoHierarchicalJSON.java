@@ -1,25 +1,46 @@
 /*
 This program simply exports a JSON file including a GoSet annotation to another JSON file but including the hierarchy
 of the terms, that's to say, children terms would be inside their pa terms  when they .
+The input file is read term by term and only the id/parent skeleton of the terms is kept in memory.
+Two output modes are available:
+
+* nested: children terms are included inside their parent terms, so terms with several parents are repeated under
+every one of them. Full terms are moved to a temporary file and read back one at a time while the output is written.
+* dag: every term is written once, in the same order as in the input file, with the IDs of its children terms
+_(childrenIds)_; the IDs of the root terms are included in the rootIds field. The input file is read twice instead of
+keeping a temporary copy of the terms.
+
+The size of the nested output is reported before it is written.
 The program expects the following parameters:
 
 1. Input JSON GO anmnotation file
 2. Output CSV GO annotation file
+3. Output mode: nested/dag _(optional, nested by default)_
 
  */
 package com.bio4j.examples.go;
 
+import com.bio4j.examples.util.ExecutionFailedException;
 import com.era7.bioinfo.bioinfoutil.Executable;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
 import com.bio4j.json.go.GOTerm;
-import com.bio4j.json.go.GoSet;
 
 import java.io.*;
 import java.util.*;
 
 public class TransformGOJSONtoHierarchicalJSON implements Executable{
 
+	public static final String CHILDREN_TERMS_FIELD = "childrenTerms";
+	public static final String CHILDREN_IDS_FIELD = "childrenIds";
+	public static final String ROOT_IDS_FIELD = "rootIds";
+	public static final String NESTED_MODE = "nested";
+	public static final String DAG_MODE = "dag";
+
 	@Override
 	public void execute(ArrayList<String> array) {
 		String[] args = new String[array.size()];
@@ -31,67 +52,132 @@ public class TransformGOJSONtoHierarchicalJSON implements Executable{
 
 	public static void main(String[] args){
 
-		if (args.length != 2) {
+		if ((args.length != 2 && args.length != 3) ||
+				(args.length == 3 && !args[2].equals(NESTED_MODE) && !args[2].equals(DAG_MODE))) {
 			System.out.println("This program expects the following parameters:\n"
 					+ "1. Input JSON GO anmnotation file\n"
-					+ "2. Output JSOM GO annotation file (hierarchical)");
+					+ "2. Output JSOM GO annotation file (hierarchical)\n"
+					+ "3. Output mode: nested/dag (optional, nested by default)");
 		} else {
 
 			String inputFileSt = args[0];
 			String outputFileSt = args[1];
+			boolean dagOutput = args.length == 3 && args[2].equals(DAG_MODE);
 
-			try {
-
-				BufferedReader reader = new BufferedReader(new FileReader(new File(inputFileSt)));
-				BufferedWriter writer = new BufferedWriter(new FileWriter(new File(outputFileSt)));
+			try (GoSetJsonReader goSetReader = new GoSetJsonReader(new File(inputFileSt));
+			     GoTermSpillFile spillFile = dagOutput ? null : new GoTermSpillFile();
+			     JsonWriter jsonWriter = new JsonWriter(new BufferedWriter(new FileWriter(new File(outputFileSt)), 1 << 16))){
 
-				Gson gson = new GsonBuilder().setPrettyPrinting().create();
-				GoSet goSet = gson.fromJson(reader, GoSet.class);
+				long startTime = System.currentTimeMillis();
 
-				HashMap<String, GOTerm> termsMap = new HashMap<>();
-
-				for(GOTerm term : goSet.getGoTerms()){
-					termsMap.put(term.getId(), term);
+				//----only the id/parent skeleton of the terms is kept in memory----
+				GoHierarchyBuilder hierarchyBuilder = new GoHierarchyBuilder();
+				while(goSetReader.hasNext()){
+					GOTerm term = goSetReader.next();
+					hierarchyBuilder.addTerm(term.getId(), term.getParentIds());
+					if(spillFile != null){
+						spillFile.append(term);
+					}
 				}
-
-				Set<GOTerm> termsSet = goSet.getGoTerms();
-				GoSet newGoSet = new GoSet(new HashSet<GOTerm>());
-
-				List<String> childrenTerms = new LinkedList<>();
-
-				for (GOTerm currentTerm : termsSet){
-
-					System.out.println("currentTerm.id = " + currentTerm.id);
-
-					List<String> parentIdList = currentTerm.getParentIds();
-					for (String parentId : parentIdList){
-						GOTerm parentTerm = termsMap.get(parentId);
-						if(parentTerm == null){
-							newGoSet.addGOTerm(currentTerm);
-						}else{
-							parentTerm.addTermToChildren(currentTerm);
-							childrenTerms.add(currentTerm.id);
+				hierarchyBuilder.build();
+				System.out.println(hierarchyBuilder.size() + " terms read, " + hierarchyBuilder.roots().length + " root terms found ("
+						+ (System.currentTimeMillis() - startTime) + " ms)");
+
+				long nestedTermOccurrences = hierarchyBuilder.nestedTermOccurrences();
+				System.out.println("The nested output includes " + nestedTermOccurrences + " term occurrences for "
+						+ hierarchyBuilder.size() + " terms (" + (nestedTermOccurrences - hierarchyBuilder.size()) + " repeated)");
+
+				Gson gson = new Gson();
+				jsonWriter.setIndent(GoSetJsonWriter.PRETTY_PRINTING_INDENT);
+				jsonWriter.beginObject();
+				jsonWriter.name(GoSetJsonWriter.GO_TERMS_FIELD);
+				jsonWriter.beginArray();
+
+				if(dagOutput){
+
+					try (GoSetJsonReader secondPassReader = new GoSetJsonReader(new File(inputFileSt))){
+						int term = 0;
+						while(secondPassReader.hasNext()){
+							writeDAGTerm(jsonWriter, secondPassReader.next(), hierarchyBuilder.children(term++), hierarchyBuilder, gson);
 						}
 					}
-				}
+					jsonWriter.endArray();
+					jsonWriter.name(ROOT_IDS_FIELD);
+					jsonWriter.beginArray();
+					for (int rootTerm : hierarchyBuilder.roots()){
+						jsonWriter.value(hierarchyBuilder.id(rootTerm));
+					}
 
-				for (GOTerm currentTerm : termsSet){
-					if(!childrenTerms.contains(currentTerm.id)){
-						newGoSet.addGOTerm(currentTerm);
+				}else{
+
+					long nestedOutputSize = hierarchyBuilder.nestedOutputSize(spillFile::length);
+					System.out.println("Writing nested output (at least " + nestedOutputSize + " bytes)...");
+					for (int rootTerm : hierarchyBuilder.roots()){
+						writeNestedTerm(jsonWriter, rootTerm, hierarchyBuilder, spillFile, gson);
 					}
 				}
 
-				writer.write(gson.toJson(newGoSet));
+				jsonWriter.endArray();
+				jsonWriter.endObject();
 				System.out.println("Closing writer...");
-				writer.close();
-				System.out.println("Output file created successfully! :)");
-
 
 			} catch (IOException e) {
-				e.printStackTrace();
+				throw new ExecutionFailedException(TransformGOJSONtoHierarchicalJSON.class.getSimpleName(), e);
 			}
 
+			System.out.println("Output file created successfully! :)");
+
+		}
+
+	}
+
+	/**
+	 * Writes the term stored at the position provided followed by all its children terms, recursively.
+	 */
+	private static void writeNestedTerm(JsonWriter jsonWriter,
+	                                    int term,
+	                                    GoHierarchyBuilder hierarchyBuilder,
+	                                    GoTermSpillFile spillFile,
+	                                    Gson gson) throws IOException {
+
+		JsonObject termObject = gson.toJsonTree(spillFile.read(term)).getAsJsonObject();
+		termObject.remove(CHILDREN_TERMS_FIELD);
+
+		jsonWriter.beginObject();
+		for (Map.Entry<String, JsonElement> entry : termObject.entrySet()){
+			jsonWriter.name(entry.getKey());
+			gson.toJson(entry.getValue(), jsonWriter);
+		}
+		int[] children = hierarchyBuilder.children(term);
+		if(children.length > 0){
+			jsonWriter.name(CHILDREN_TERMS_FIELD);
+			jsonWriter.beginArray();
+			for (int child : children){
+				writeNestedTerm(jsonWriter, child, hierarchyBuilder, spillFile, gson);
+			}
+			jsonWriter.endArray();
 		}
+		jsonWriter.endObject();
+	}
 
+	/**
+	 * Writes the term provided, referencing its children terms by their ID.
+	 */
+	private static void writeDAGTerm(JsonWriter jsonWriter,
+	                                 GOTerm term,
+	                                 int[] children,
+	                                 GoHierarchyBuilder hierarchyBuilder,
+	                                 Gson gson) throws IOException {
+
+		JsonObject termObject = gson.toJsonTree(term).getAsJsonObject();
+		termObject.remove(CHILDREN_TERMS_FIELD);
+		if(children.length > 0){
+			JsonArray childrenIds = new JsonArray();
+			for (int child : children){
+				childrenIds.add(new JsonPrimitive(hierarchyBuilder.id(child)));
+			}
+			termObject.add(CHILDREN_IDS_FIELD, childrenIds);
+		}
+		gson.toJson(termObject, jsonWriter);
 	}
 }
@@ -0,0 +1,171 @@
+/*
+This program finds the lineage of the NCBI taxa provided, writing the results to a TSV file.
+
+Every line of the input file includes one or more NCBI taxon IDs _(separated by commas or whitespace)_; when there
+are several of them the lineage is the one of their lowest common ancestor _(LCA)_. Besides the full lineage, the
+output includes the LCA moved up to the closest standard rank, the names of the ancestors at every standard rank
+_(superkingdom, kingdom, phylum, class, order, family, genus and species)_ and, optionally, the taxon shared by all
+the input taxa at the rank provided.
+All the queries are answered from the taxonomy tree cache file stored next to the DB folder; the database is only
+opened when that file is missing or out of date.
+
+The program expects the following parameters:
+
+1. Bio4j DB folder
+2. Input file including NCBI taxon IDs
+3. Output TSV file
+4. Rank the LCA must be shared at _(optional, one of superkingdom/kingdom/phylum/class/order/family/genus/species)_
+
+ */
+package com.bio4j.examples.ncbi_taxonomy;
+
+import com.bio4j.examples.util.Bio4jGraph;
+import com.bio4j.examples.util.Bio4jSessionFactory;
+import com.bio4j.examples.util.CsvWriter;
+import com.bio4j.examples.util.ExecutionFailedException;
+import com.era7.bioinfo.bioinfoutil.Executable;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class GetTaxonomicLineages implements Executable {
+
+	public static final String HEADER = "INPUT_TAXON_IDS\tLCA_TAXON_ID\tLCA_SCIENTIFIC_NAME\tLCA_RANK\t"
+			+ "STANDARD_RANK_TAXON_ID\tSTANDARD_RANK_SCIENTIFIC_NAME\tSTANDARD_RANK\tLINEAGE";
+
+	@Override
+	public void execute(ArrayList<String> array) {
+		String[] args = new String[array.size()];
+		for (int i = 0; i < array.size(); i++) {
+			args[i] = array.get(i);
+		}
+		main(args);
+	}
+
+	public static void main(String[] args) {
+
+		if ((args.length != 3 && args.length != 4) ||
+				(args.length == 4 && TaxonomyLineageService.standardRankIndex(args[3]) == TaxonomyLineageService.NONE)) {
+			System.out.println("This program expects the following parameters:\n"
+					+ "1. Bio4j DB folder\n"
+					+ "2. Input file including NCBI taxon IDs (one or more per line)\n"
+					+ "3. Output TSV file\n"
+					+ "4. Rank the LCA must be shared at (optional, " + String.join("/", TaxonomyLineageService.STANDARD_RANKS) + ")");
+		} else {
+
+			String dbFolder = args[0];
+			String inputFileSt = args[1];
+			String outputFileSt = args[2];
+			int limitRank = args.length == 4 ? TaxonomyLineageService.standardRankIndex(args[3]) : TaxonomyLineageService.NONE;
+
+			try (BufferedReader reader = new BufferedReader(new FileReader(new File(inputFileSt)));
+			     CsvWriter writer = new CsvWriter(new File(outputFileSt), CsvWriter.TAB)){
+
+				System.out.println("Loading the NCBI taxonomy...");
+				//----the cache file is stored next to the DB folder, also when a properties file was provided----
+				String storageDirectory = Bio4jSessionFactory.storageDirectory(dbFolder);
+				TaxonomyTree taxonomyTree = storageDirectory == null ? null : TaxonomyTreeCache.loadIfValid(storageDirectory);
+				if(taxonomyTree == null){
+					taxonomyTree = loadTaxonomyTreeFromDatabase(dbFolder, storageDirectory);
+				}
+				TaxonomyLineageService lineageService = new TaxonomyLineageService(new TaxonomyLCAIndex(taxonomyTree));
+				System.out.println("Done! (" + taxonomyTree.size() + " taxa)");
+
+				StringBuilder header = new StringBuilder(HEADER);
+				if(limitRank != TaxonomyLineageService.NONE){
+					header.append("\tLCA_").append(args[3].toUpperCase()).append("_TAXON_ID");
+					header.append("\tLCA_").append(args[3].toUpperCase()).append("_SCIENTIFIC_NAME");
+				}
+				for (String rank : TaxonomyLineageService.STANDARD_RANKS){
+					header.append('\t').append(rank.toUpperCase());
+				}
+				writer.writeLine(header.toString());
+
+				long startTime = System.currentTimeMillis();
+				int lineCounter = 0;
+				int unknownTaxaCounter = 0;
+
+				String line;
+				while((line = reader.readLine()) != null){
+
+					line = line.trim();
+					if(line.isEmpty()){
+						continue;
+					}
+					lineCounter++;
+
+					String[] taxonIds = line.split("[,\\s]+");
+					int[] taxa = new int[taxonIds.length];
+					int taxaFound = 0;
+					for (String taxonId : taxonIds){
+						int taxon = taxonomyTree.indexOf(taxonId);
+						if(taxon >= 0){
+							taxa[taxaFound++] = taxon;
+						}else{
+							unknownTaxaCounter++;
+						}
+					}
+
+					int lowestCommonAncestor = lineageService.lowestCommonAncestor(Arrays.copyOf(taxa, taxaFound));
+
+					writer.field(line);
+					writeTaxon(writer, taxonomyTree, lowestCommonAncestor);
+					writeTaxon(writer, taxonomyTree, lowestCommonAncestor == TaxonomyLineageService.NONE ? TaxonomyLineageService.NONE : lineageService.standardRankAncestor(lowestCommonAncestor));
+					writer.field(lowestCommonAncestor == TaxonomyLineageService.NONE ? null : lineageService.lineage(lowestCommonAncestor));
+
+					if(limitRank != TaxonomyLineageService.NONE){
+						int rankTaxon = lowestCommonAncestor == TaxonomyLineageService.NONE ? TaxonomyLineageService.NONE : lineageService.projectToRank(lowestCommonAncestor, limitRank);
+						writer.field(rankTaxon == TaxonomyLineageService.NONE ? null : taxonomyTree.id(rankTaxon));
+						writer.field(rankTaxon == TaxonomyLineageService.NONE ? null : taxonomyTree.scientificName(rankTaxon));
+					}
+
+					String[] rankedLineage = lowestCommonAncestor == TaxonomyLineageService.NONE ? new String[TaxonomyLineageService.STANDARD_RANKS.length] : lineageService.rankedLineage(lowestCommonAncestor);
+					for (String name : rankedLineage){
+						writer.field(name);
+					}
+					writer.endRow();
+				}
+
+				long elapsedTime = Math.max(1, System.currentTimeMillis() - startTime);
+				System.out.println(lineCounter + " lines processed in " + elapsedTime + " ms ("
+						+ (lineCounter * 1000L / elapsedTime) + " lines/s)");
+				if(unknownTaxaCounter > 0){
+					System.out.println(unknownTaxaCounter + " taxon IDs were not found in the NCBI taxonomy");
+				}
+				System.out.println("Closing output file...");
+
+			}catch(IOException e){
+				throw new ExecutionFailedException(GetTaxonomicLineages.class.getSimpleName(), e);
+			}
+
+			System.out.println("Done ;)");
+		}
+	}
+
+	private static void writeTaxon(CsvWriter writer, TaxonomyTree taxonomyTree, int taxon) throws IOException {
+		if(taxon == TaxonomyLineageService.NONE){
+			writer.field((String) null).field((String) null).field((String) null);
+		}else{
+			writer.field(taxonomyTree.id(taxon)).field(taxonomyTree.scientificName(taxon)).field(taxonomyTree.rank(taxon));
+		}
+	}
+
+	/**
+	 * @param storageDirectory DB folder the cache file is written next to, null for none
+	 */
+	private static TaxonomyTree loadTaxonomyTreeFromDatabase(String dbFolder, String storageDirectory){
+
+		//-------getting the graph handlers---------------------
+		Bio4jGraph bio4jGraph = Bio4jGraph.acquire(dbFolder);
+		TaxonomyTree taxonomyTree;
+		try{
+			taxonomyTree = TaxonomyTreeCache.loadOrBuild(storageDirectory, bio4jGraph.ncbiTaxonomyGraph());
+		}finally{
+			bio4jGraph.release();
+		}
+		System.out.println("Done!");
+
+		return taxonomyTree;
+	}
+}
@@ -2,14 +2,22 @@
 
 Class including utility methods around NCBI taxonomic units.
 
+The lowest common ancestor can be found walking either the taxonomy stored in the database or the off-heap TaxonomyTree
+snapshot or, when many of them must be computed, with a TaxonomyLCAIndex built once for the whole taxonomy.
+
  */
 package com.bio4j.examples.ncbi_taxonomy;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.bio4j.model.ncbiTaxonomy.vertices.NCBITaxon;
+import com.bio4j.titan.model.ncbiTaxonomy.TitanNCBITaxonomyGraph;
 import com.bio4j.titan.util.DefaultTitanGraph;
 import com.thinkaurelius.titan.core.TitanEdge;
 import com.thinkaurelius.titan.core.TitanVertex;
@@ -49,6 +57,135 @@ public class TaxonomyAlgo {
         }
 
     }
+
+
+    /**
+     * Finds the lowest common ancestor with the LCA index provided, falling back to the database walk when any of
+     * the nodes is not included in the index.
+     */
+    public static NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> lowestCommonAncestor(List<NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> nodes,
+                                                                                                                            TaxonomyLCAIndex lcaIndex,
+                                                                                                                            TitanNCBITaxonomyGraph titanNCBITaxonomyGraph){
+
+        TaxonomyTree taxonomyTree = lcaIndex.taxonomyTree();
+        int[] taxa = new int[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            taxa[i] = taxonomyTree.indexOf(nodes.get(i).id());
+            if(taxa[i] < 0){
+                return lowestCommonAncestor(nodes);
+            }
+        }
+
+        int lowestCommonAncestor = lcaIndex.lowestCommonAncestor(taxa);
+        if(lowestCommonAncestor < 0){
+            return null;
+        }
+        return titanNCBITaxonomyGraph.ncbiTaxonIdIndex().getVertex(taxonomyTree.id(lowestCommonAncestor)).orElse(null);
+    }
+
+    /**
+     * Walks the off-heap taxonomy tree provided, without touching the database nor allocating anything.
+     *
+     * @return lowest common ancestor of the two taxa provided _(taxon indexes)_
+     */
+    public static int lowestCommonAncestor(int taxon1, int taxon2, TaxonomyTree taxonomyTree){
+
+        while(taxonomyTree.depth(taxon1) > taxonomyTree.depth(taxon2)){
+            taxon1 = taxonomyTree.parent(taxon1);
+        }
+        while(taxonomyTree.depth(taxon2) > taxonomyTree.depth(taxon1)){
+            taxon2 = taxonomyTree.parent(taxon2);
+        }
+        while(taxon1 != taxon2){
+            taxon1 = taxonomyTree.parent(taxon1);
+            taxon2 = taxonomyTree.parent(taxon2);
+        }
+        return taxon1;
+    }
+
+    /**
+     * Finds the deepest taxon covering at least the fraction of the total weight provided, so that a few misannotated
+     * members do not drag the LCA of a group up to the root. Counts are accumulated bottom-up in a single pass over the
+     * depths of the tree: the taxa found at every depth are checked and then merged into their parents.
+     * With minFraction = 1 the result is the strict lowest common ancestor.
+     *
+     * @param taxa taxon indexes _(repetitions allowed)_
+     * @param weights weight of every taxon, e.g. the number of members annotated with it
+     * @param minFraction minimum fraction of the total weight the result must cover, in (0, 1]
+     * @return taxon index or -1 when there are no taxa
+     */
+    public static int weightedLowestCommonAncestor(int[] taxa, int[] weights, double minFraction, TaxonomyTree taxonomyTree){
+
+        if(minFraction <= 0 || minFraction > 1){
+            throw new IllegalArgumentException("The minimum fraction must be in (0, 1]: " + minFraction);
+        }
+
+        long totalWeight = 0;
+        int maxDepth = 0;
+        for (int i = 0; i < taxa.length; i++) {
+            totalWeight += weights[i];
+            maxDepth = Math.max(maxDepth, taxonomyTree.depth(taxa[i]));
+        }
+        if(totalWeight == 0){
+            return -1;
+        }
+        long requiredWeight = Math.max(1, (long) Math.ceil(minFraction * totalWeight - 1e-9));
+
+        //----taxa pending at every depth plus their accumulated subtree weights----
+        Map<Integer, Long> subtreeWeights = new HashMap<>(taxa.length * 2);
+        List<List<Integer>> depthBuckets = new ArrayList<>(maxDepth + 1);
+        for (int depth = 0; depth <= maxDepth; depth++) {
+            depthBuckets.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < taxa.length; i++) {
+            addWeight(taxa[i], weights[i], subtreeWeights, depthBuckets, taxonomyTree);
+        }
+
+        for (int depth = maxDepth; depth >= 0; depth--) {
+
+            List<Integer> bucket = depthBuckets.get(depth);
+
+            int bestTaxon = -1;
+            long bestWeight = 0;
+            for (int taxon : bucket){
+                long weight = subtreeWeights.get(taxon);
+                if(weight >= requiredWeight && weight > bestWeight){
+                    bestTaxon = taxon;
+                    bestWeight = weight;
+                }
+            }
+            if(bestTaxon >= 0){
+                return bestTaxon;
+            }
+
+            for (int taxon : bucket){
+                int parent = taxonomyTree.parent(taxon);
+                if(parent != TaxonomyTree.NO_PARENT){
+                    addWeight(parent, subtreeWeights.get(taxon), subtreeWeights, depthBuckets, taxonomyTree);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static void addWeight(int taxon, long weight, Map<Integer, Long> subtreeWeights, List<List<Integer>> depthBuckets, TaxonomyTree taxonomyTree){
+        Long currentWeight = subtreeWeights.get(taxon);
+        if(currentWeight == null){
+            subtreeWeights.put(taxon, weight);
+            depthBuckets.get(taxonomyTree.depth(taxon)).add(taxon);
+        }else{
+            subtreeWeights.put(taxon, currentWeight + weight);
+        }
+    }
+
+    /**
+     * Taxa not included in the LCA index are ignored.
+     *
+     * @return ID of the lowest common ancestor of the taxa provided or null when none of them was found
+     */
+    public static String lowestCommonAncestorId(Collection<String> taxonIds, TaxonomyLCAIndex lcaIndex){
+        return lcaIndex.lowestCommonAncestorId(taxonIds);
+    }
     
     
     
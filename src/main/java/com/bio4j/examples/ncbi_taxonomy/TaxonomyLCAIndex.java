@@ -0,0 +1,185 @@
+/*
+Lowest common ancestor _(LCA)_ index over a TaxonomyTree snapshot.
+
+The index stores the Euler tour of the tree _(the sequence of taxa visited by a depth-first traversal, where every taxon
+is repeated each time the traversal comes back to it)_ together with the position of the first occurrence of every
+taxon. The LCA of two taxa is then the shallowest taxon found in the tour between their first occurrences.
+Those range minimum queries are answered with a sparse table built over blocks of BLOCK_SIZE tour positions plus a
+scan of the two partial blocks at the ends of the range, so that the table takes a few MBs for the whole NCBI
+taxonomy instead of hundreds. Pairwise queries take constant time and the LCA of a set of k taxa is computed in O(k),
+as it is the LCA of the members with the smallest and largest first occurrences.
+
+ */
+package com.bio4j.examples.ncbi_taxonomy;
+
+import java.util.Collection;
+
+public class TaxonomyLCAIndex {
+
+	public static final int BLOCK_SIZE = 32;
+
+	private final TaxonomyTree taxonomyTree;
+	private final int[] eulerTour;
+	private final int[] firstOccurrences;
+	//----blockMinima[k][b] = tour position of the shallowest taxon in blocks b..b + 2^k - 1----
+	private final int[][] blockMinima;
+
+	public TaxonomyLCAIndex(TaxonomyTree taxonomyTree){
+
+		this.taxonomyTree = taxonomyTree;
+		int size = taxonomyTree.size();
+
+		if(size == 0){
+			throw new IllegalArgumentException("The taxonomy tree is empty");
+		}
+		for (int taxon = 1; taxon < size; taxon++) {
+			if(taxonomyTree.parent(taxon) == TaxonomyTree.NO_PARENT){
+				throw new IllegalArgumentException("The taxonomy tree has more than one root: " + taxonomyTree.id(taxon));
+			}
+		}
+
+		//----Euler tour, built with an explicit stack since the tree is too deep for recursion----
+		eulerTour = new int[2 * size - 1];
+		firstOccurrences = new int[size];
+		int maxDepth = 0;
+		for (int taxon = 0; taxon < size; taxon++) {
+			maxDepth = Math.max(maxDepth, taxonomyTree.depth(taxon));
+		}
+		int[] stack = new int[maxDepth + 1];
+		int[] nextChild = new int[maxDepth + 1];
+		int stackSize = 0;
+		int position = 0;
+
+		stack[stackSize++] = 0;
+		firstOccurrences[0] = position;
+		eulerTour[position++] = 0;
+		while(stackSize > 0){
+			int taxon = stack[stackSize - 1];
+			int k = nextChild[stackSize - 1];
+			if(k < taxonomyTree.childCount(taxon)){
+				nextChild[stackSize - 1]++;
+				int child = taxonomyTree.child(taxon, k);
+				firstOccurrences[child] = position;
+				eulerTour[position++] = child;
+				stack[stackSize] = child;
+				nextChild[stackSize] = 0;
+				stackSize++;
+			}else{
+				stackSize--;
+				if(stackSize > 0){
+					eulerTour[position++] = stack[stackSize - 1];
+				}
+			}
+		}
+
+		//----sparse table over the minima of every block----
+		int blockCount = (eulerTour.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int levels = 32 - Integer.numberOfLeadingZeros(blockCount);
+		blockMinima = new int[levels][];
+		blockMinima[0] = new int[blockCount];
+		for (int block = 0; block < blockCount; block++) {
+			blockMinima[0][block] = scanMinimum(block * BLOCK_SIZE, Math.min(eulerTour.length, (block + 1) * BLOCK_SIZE) - 1);
+		}
+		for (int level = 1; level < levels; level++) {
+			int span = 1 << (level - 1);
+			int[] previous = blockMinima[level - 1];
+			int[] current = new int[blockCount - (1 << level) + 1];
+			for (int block = 0; block < current.length; block++) {
+				current[block] = shallowest(previous[block], previous[block + span]);
+			}
+			blockMinima[level] = current;
+		}
+	}
+
+	public TaxonomyTree taxonomyTree(){
+		return taxonomyTree;
+	}
+
+	/**
+	 * @return lowest common ancestor of the two taxa provided _(taxon indexes)_
+	 */
+	public int lowestCommonAncestor(int taxon1, int taxon2){
+		int first1 = firstOccurrences[taxon1];
+		int first2 = firstOccurrences[taxon2];
+		return eulerTour[minimumPosition(Math.min(first1, first2), Math.max(first1, first2))];
+	}
+
+	/**
+	 * @return lowest common ancestor of the taxa provided _(taxon indexes)_ or -1 when there are none
+	 */
+	public int lowestCommonAncestor(int[] taxa){
+
+		if(taxa.length == 0){
+			return -1;
+		}
+		int minFirst = Integer.MAX_VALUE;
+		int maxFirst = Integer.MIN_VALUE;
+		for (int taxon : taxa){
+			int first = firstOccurrences[taxon];
+			minFirst = Math.min(minFirst, first);
+			maxFirst = Math.max(maxFirst, first);
+		}
+		return eulerTour[minimumPosition(minFirst, maxFirst)];
+	}
+
+	/**
+	 * Taxa not included in the taxonomy tree are ignored.
+	 *
+	 * @return ID of the lowest common ancestor of the taxa provided or null when none of them was found
+	 */
+	public String lowestCommonAncestorId(Collection<String> taxonIds){
+
+		int minFirst = Integer.MAX_VALUE;
+		int maxFirst = Integer.MIN_VALUE;
+		for (String taxonId : taxonIds){
+			int taxon = taxonomyTree.indexOf(taxonId);
+			if(taxon >= 0){
+				int first = firstOccurrences[taxon];
+				minFirst = Math.min(minFirst, first);
+				maxFirst = Math.max(maxFirst, first);
+			}
+		}
+		if(minFirst == Integer.MAX_VALUE){
+			return null;
+		}
+		return taxonomyTree.id(eulerTour[minimumPosition(minFirst, maxFirst)]);
+	}
+
+	/**
+	 * @return tour position of the shallowest taxon between the positions provided _(both included)_
+	 */
+	private int minimumPosition(int from, int to){
+
+		int fromBlock = from / BLOCK_SIZE;
+		int toBlock = to / BLOCK_SIZE;
+		if(fromBlock == toBlock){
+			return scanMinimum(from, to);
+		}
+
+		int minimum = shallowest(scanMinimum(from, (fromBlock + 1) * BLOCK_SIZE - 1), scanMinimum(toBlock * BLOCK_SIZE, to));
+		if(toBlock - fromBlock > 1){
+			int firstBlock = fromBlock + 1;
+			int lastBlock = toBlock - 1;
+			int level = 31 - Integer.numberOfLeadingZeros(lastBlock - firstBlock + 1);
+			minimum = shallowest(minimum, shallowest(blockMinima[level][firstBlock], blockMinima[level][lastBlock - (1 << level) + 1]));
+		}
+		return minimum;
+	}
+
+	private int scanMinimum(int from, int to){
+		int minimum = from;
+		int minimumDepth = taxonomyTree.depth(eulerTour[from]);
+		for (int position = from + 1; position <= to; position++) {
+			int depth = taxonomyTree.depth(eulerTour[position]);
+			if(depth < minimumDepth){
+				minimum = position;
+				minimumDepth = depth;
+			}
+		}
+		return minimum;
+	}
+
+	private int shallowest(int position1, int position2){
+		return taxonomyTree.depth(eulerTour[position1]) <= taxonomyTree.depth(eulerTour[position2]) ? position1 : position2;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+Lineage and rank-aware LCA queries over a TaxonomyTree snapshot.
+
+For every standard rank _(superkingdom, kingdom, phylum, class, order, family, genus and species)_ the service
+precomputes an array with the ancestor _(or the taxon itself)_ of every taxon at that rank, plus another one with the
+closest ancestor-or-self of every taxon having any standard rank. Since parents are always sorted before their
+children in the tree, each array is filled with a single pass over the taxa.
+Projecting a taxon to a rank is then a single array access, and lineages are built walking the parent array of the
+tree, so no query touches the database.
+
+ */
+package com.bio4j.examples.ncbi_taxonomy;
+
+public class TaxonomyLineageService {
+
+	public static final String[] STANDARD_RANKS = {"superkingdom", "kingdom", "phylum", "class", "order", "family", "genus", "species"};
+	public static final String LINEAGE_SEPARATOR = "; ";
+	public static final int NONE = -1;
+
+	private final TaxonomyTree taxonomyTree;
+	private final TaxonomyLCAIndex lcaIndex;
+	//----rankProjections[r][taxon] = ancestor-or-self of the taxon with rank STANDARD_RANKS[r]----
+	private final int[][] rankProjections;
+	private final int[] standardRankAncestors;
+
+	public TaxonomyLineageService(TaxonomyLCAIndex lcaIndex){
+
+		this.lcaIndex = lcaIndex;
+		this.taxonomyTree = lcaIndex.taxonomyTree();
+		int size = taxonomyTree.size();
+
+		//----standard rank position of every rank code----
+		String[] rankNames = taxonomyTree.rankNames();
+		int[] standardRankOfCode = new int[rankNames.length];
+		for (int code = 0; code < rankNames.length; code++) {
+			standardRankOfCode[code] = standardRankIndex(rankNames[code]);
+		}
+
+		rankProjections = new int[STANDARD_RANKS.length][size];
+		standardRankAncestors = new int[size];
+		for (int taxon = 0; taxon < size; taxon++) {
+			int parent = taxonomyTree.parent(taxon);
+			int standardRank = standardRankOfCode[taxonomyTree.rankCode(taxon)];
+			for (int r = 0; r < STANDARD_RANKS.length; r++) {
+				if(r == standardRank){
+					rankProjections[r][taxon] = taxon;
+				}else{
+					rankProjections[r][taxon] = parent == TaxonomyTree.NO_PARENT ? NONE : rankProjections[r][parent];
+				}
+			}
+			if(standardRank != NONE){
+				standardRankAncestors[taxon] = taxon;
+			}else{
+				standardRankAncestors[taxon] = parent == TaxonomyTree.NO_PARENT ? NONE : standardRankAncestors[parent];
+			}
+		}
+	}
+
+	public TaxonomyTree taxonomyTree(){
+		return taxonomyTree;
+	}
+
+	/**
+	 * @return position of the rank in STANDARD_RANKS or NONE when it is not a standard rank
+	 */
+	public static int standardRankIndex(String rank){
+		for (int r = 0; r < STANDARD_RANKS.length; r++) {
+			if(STANDARD_RANKS[r].equals(rank)){
+				return r;
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * @return ancestor-or-self of the taxon with the standard rank provided _(position in STANDARD_RANKS)_ or NONE
+	 */
+	public int projectToRank(int taxon, int standardRank){
+		return rankProjections[standardRank][taxon];
+	}
+
+	/**
+	 * @return closest ancestor-or-self of the taxon having a standard rank or NONE
+	 */
+	public int standardRankAncestor(int taxon){
+		return standardRankAncestors[taxon];
+	}
+
+	/**
+	 * @return lowest common ancestor of the taxa provided or NONE when there are none
+	 */
+	public int lowestCommonAncestor(int[] taxa){
+		return taxa.length == 0 ? NONE : lcaIndex.lowestCommonAncestor(taxa);
+	}
+
+	/**
+	 * @return lowest common ancestor of the taxa provided moved up to the closest taxon having a standard rank
+	 */
+	public int lowestCommonAncestorAtStandardRank(int[] taxa){
+		int lowestCommonAncestor = lowestCommonAncestor(taxa);
+		return lowestCommonAncestor == NONE ? NONE : standardRankAncestors[lowestCommonAncestor];
+	}
+
+	/**
+	 * @return the taxon at the standard rank provided shared by all the taxa, or NONE when they do not share any
+	 * taxon at that rank _(their lowest common ancestor is above it)_
+	 */
+	public int lowestCommonAncestorAtRank(int[] taxa, int standardRank){
+		int lowestCommonAncestor = lowestCommonAncestor(taxa);
+		return lowestCommonAncestor == NONE ? NONE : rankProjections[standardRank][lowestCommonAncestor];
+	}
+
+	/**
+	 * @return scientific names of all the ancestors of the taxon _(the root excluded)_ followed by the taxon itself
+	 */
+	public String lineage(int taxon){
+
+		int depth = taxonomyTree.depth(taxon);
+		String[] names = new String[depth];
+		for (int i = depth - 1; i >= 0; i--) {
+			names[i] = taxonomyTree.scientificName(taxon);
+			taxon = taxonomyTree.parent(taxon);
+		}
+
+		StringBuilder lineage = new StringBuilder();
+		for (int i = 0; i < names.length; i++) {
+			if(i > 0){
+				lineage.append(LINEAGE_SEPARATOR);
+			}
+			lineage.append(names[i]);
+		}
+		return lineage.toString();
+	}
+
+	/**
+	 * @return scientific names of the ancestors-or-self of the taxon at every standard rank _(null for the ranks
+	 * missing from its lineage)_
+	 */
+	public String[] rankedLineage(int taxon){
+		String[] names = new String[STANDARD_RANKS.length];
+		for (int r = 0; r < STANDARD_RANKS.length; r++) {
+			int ancestor = rankProjections[r][taxon];
+			names[r] = ancestor == NONE ? null : taxonomyTree.scientificName(ancestor);
+		}
+		return names;
+	}
+}
@@ -0,0 +1,365 @@
+/*
+Immutable snapshot of the NCBI taxonomy tree stored off-heap.
+
+Taxa are identified by dense int indexes assigned in breadth-first order from the root taxon, so the index of every
+taxon is greater than the one of its parent. All the information is kept in primitive arrays stored in direct (or
+memory-mapped) byte buffers, so walking the tree is just pointer chasing over ints that does not allocate anything
+nor add anything to the heap:
+
+* NCBI taxon ID, parent, depth and rank code of every taxon
+* children of every taxon in CSR form _(one offsets array plus one flat array of taxon indexes)_
+* taxon ID -> taxon index lookup array _(NCBI taxon IDs are dense positive ints)_
+* scientific names as one UTF-8 blob plus the offset of every name
+
+The snapshot is loaded once from the TitanNCBITaxonomyGraph by walking the parent edges downwards from the root and
+can be persisted with TaxonomyTreeCache. The whole NCBI taxonomy _(around 2.5M taxa)_ takes about 65 MB plus the
+scientific names.
+
+ */
+package com.bio4j.examples.ncbi_taxonomy;
+
+import com.bio4j.model.ncbiTaxonomy.vertices.NCBITaxon;
+import com.bio4j.titan.model.ncbiTaxonomy.TitanNCBITaxonomyGraph;
+import com.bio4j.titan.util.DefaultTitanGraph;
+import com.thinkaurelius.titan.core.TitanEdge;
+import com.thinkaurelius.titan.core.TitanVertex;
+import com.thinkaurelius.titan.core.schema.EdgeLabelMaker;
+import com.thinkaurelius.titan.core.schema.VertexLabelMaker;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TaxonomyTree {
+
+	public static final String ROOT_TAXON_ID = "1";
+	public static final int NO_PARENT = -1;
+	public static final int MAX_RANKS = 256;
+
+	private final int size;
+	private final String[] rankNames;
+
+	//----int arrays----
+	private final ByteBuffer taxonIds;
+	private final ByteBuffer parents;
+	private final ByteBuffer depths;
+	private final ByteBuffer childOffsets;
+	private final ByteBuffer children;
+	private final ByteBuffer idToIndex;
+	private final ByteBuffer nameOffsets;
+	//----byte arrays----
+	private final ByteBuffer ranks;
+	private final ByteBuffer names;
+
+	/**
+	 * Wraps buffers already built, e.g. memory-mapped from a cache file.
+	 */
+	TaxonomyTree(int size,
+	             String[] rankNames,
+	             ByteBuffer taxonIds,
+	             ByteBuffer parents,
+	             ByteBuffer depths,
+	             ByteBuffer childOffsets,
+	             ByteBuffer children,
+	             ByteBuffer idToIndex,
+	             ByteBuffer nameOffsets,
+	             ByteBuffer ranks,
+	             ByteBuffer names){
+
+		this.size = size;
+		this.rankNames = rankNames;
+		this.taxonIds = taxonIds;
+		this.parents = parents;
+		this.depths = depths;
+		this.childOffsets = childOffsets;
+		this.children = children;
+		this.idToIndex = idToIndex;
+		this.nameOffsets = nameOffsets;
+		this.ranks = ranks;
+		this.names = names;
+	}
+
+	/**
+	 * Builds the snapshot from plain arrays.
+	 *
+	 * @param taxonIds NCBI taxon IDs indexed by taxon
+	 * @param parents parent of every taxon _(NO_PARENT for the root)_; parents must have lower indexes than their children
+	 * @param ranks rank of every taxon _(position in rankNames)_
+	 * @param rankNames names of the ranks
+	 * @param names scientific names indexed by taxon
+	 */
+	static TaxonomyTree fromArrays(int[] taxonIds, int[] parents, byte[] ranks, String[] rankNames, String[] names){
+
+		int size = taxonIds.length;
+
+		int maxTaxonId = 0;
+		for (int taxonId : taxonIds){
+			if(taxonId < 0){
+				throw new IllegalArgumentException("Negative NCBI taxon ID: " + taxonId);
+			}
+			maxTaxonId = Math.max(maxTaxonId, taxonId);
+		}
+
+		ByteBuffer taxonIdsBuffer = intBuffer(size);
+		ByteBuffer parentsBuffer = intBuffer(size);
+		ByteBuffer depthsBuffer = intBuffer(size);
+		ByteBuffer idToIndexBuffer = intBuffer(maxTaxonId + 1);
+		for (int taxonId = 0; taxonId <= maxTaxonId; taxonId++) {
+			idToIndexBuffer.putInt(taxonId << 2, -1);
+		}
+
+		for (int taxon = 0; taxon < size; taxon++) {
+			taxonIdsBuffer.putInt(taxon << 2, taxonIds[taxon]);
+			parentsBuffer.putInt(taxon << 2, parents[taxon]);
+			idToIndexBuffer.putInt(taxonIds[taxon] << 2, taxon);
+			if(parents[taxon] != NO_PARENT){
+				if(parents[taxon] >= taxon){
+					throw new IllegalArgumentException("The parent of taxon " + taxonIds[taxon] + " is not sorted before it");
+				}
+				depthsBuffer.putInt(taxon << 2, depthsBuffer.getInt(parents[taxon] << 2) + 1);
+			}
+		}
+
+		//----building the children arrays by counting the children of every taxon----
+		int[] childOffsets = new int[size + 1];
+		for (int parent : parents){
+			if(parent != NO_PARENT){
+				childOffsets[parent + 1]++;
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			childOffsets[i + 1] += childOffsets[i];
+		}
+		ByteBuffer childrenBuffer = intBuffer(childOffsets[size]);
+		int[] nextChildPosition = Arrays.copyOf(childOffsets, size);
+		for (int taxon = 0; taxon < size; taxon++) {
+			if(parents[taxon] != NO_PARENT){
+				childrenBuffer.putInt((nextChildPosition[parents[taxon]]++) << 2, taxon);
+			}
+		}
+		ByteBuffer childOffsetsBuffer = intBuffer(size + 1);
+		for (int i = 0; i <= size; i++) {
+			childOffsetsBuffer.putInt(i << 2, childOffsets[i]);
+		}
+
+		//----scientific names----
+		byte[][] nameBytes = new byte[size][];
+		int nameBytesCount = 0;
+		for (int taxon = 0; taxon < size; taxon++) {
+			nameBytes[taxon] = names[taxon] == null ? new byte[0] : names[taxon].getBytes(StandardCharsets.UTF_8);
+			nameBytesCount += nameBytes[taxon].length;
+		}
+		ByteBuffer nameOffsetsBuffer = intBuffer(size + 1);
+		ByteBuffer namesBuffer = ByteBuffer.allocateDirect(nameBytesCount);
+		for (int taxon = 0; taxon < size; taxon++) {
+			nameOffsetsBuffer.putInt(taxon << 2, namesBuffer.position());
+			namesBuffer.put(nameBytes[taxon]);
+		}
+		nameOffsetsBuffer.putInt(size << 2, namesBuffer.position());
+		namesBuffer.clear();
+
+		ByteBuffer ranksBuffer = ByteBuffer.allocateDirect(size);
+		ranksBuffer.put(ranks);
+		ranksBuffer.clear();
+
+		return new TaxonomyTree(size, rankNames, taxonIdsBuffer, parentsBuffer, depthsBuffer, childOffsetsBuffer,
+				childrenBuffer, idToIndexBuffer, nameOffsetsBuffer, ranksBuffer, namesBuffer);
+	}
+
+	/**
+	 * Loads the whole taxonomy tree from the NCBI taxonomy graph provided.
+	 */
+	public static TaxonomyTree load(TitanNCBITaxonomyGraph titanNCBITaxonomyGraph){
+
+		Optional<NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> rootOptional = titanNCBITaxonomyGraph.ncbiTaxonIdIndex().getVertex(ROOT_TAXON_ID);
+		if(!rootOptional.isPresent()){
+			throw new IllegalStateException("The NCBI taxonomy root taxon " + ROOT_TAXON_ID + " could not be found");
+		}
+
+		int[] taxonIds = new int[1024];
+		int[] parents = new int[1024];
+		byte[] ranks = new byte[1024];
+		List<String> names = new ArrayList<>();
+		Map<String, Integer> rankCodes = new LinkedHashMap<>();
+		int size = 0;
+
+		LinkedList<NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> queue = new LinkedList<>();
+		//----every taxon is added to the arrays when it is polled, so its index is the one of its position in the queue----
+		LinkedList<Integer> parentQueue = new LinkedList<>();
+		queue.add(rootOptional.get());
+		parentQueue.add(NO_PARENT);
+
+		while(!queue.isEmpty()){
+
+			NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> currentTaxon = queue.poll();
+			int currentIndex = size;
+
+			if(size == taxonIds.length){
+				taxonIds = Arrays.copyOf(taxonIds, size * 2);
+				parents = Arrays.copyOf(parents, size * 2);
+				ranks = Arrays.copyOf(ranks, size * 2);
+			}
+			taxonIds[size] = parseTaxonId(currentTaxon.id());
+			parents[size] = parentQueue.poll();
+			ranks[size] = rankCode(rankCodes, currentTaxon.taxonomicRank());
+			names.add(currentTaxon.scientificName());
+			size++;
+
+			Optional<Stream<NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> childrenStreamOptional = currentTaxon.ncbiTaxonParent_outV();
+			if(childrenStreamOptional.isPresent()){
+				List<NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> childrenTaxa = childrenStreamOptional.get().collect(Collectors.toList());
+				for (NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> childTaxon : childrenTaxa){
+					queue.add(childTaxon);
+					parentQueue.add(currentIndex);
+				}
+			}
+
+			if(size % 100000 == 0){
+				System.out.println(size + " taxa loaded...");
+			}
+		}
+
+		return fromArrays(Arrays.copyOf(taxonIds, size), Arrays.copyOf(parents, size), Arrays.copyOf(ranks, size),
+				rankCodes.keySet().toArray(new String[rankCodes.size()]), names.toArray(new String[size]));
+	}
+
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * @return index of the taxon with the ID provided or -1 when the taxon is not included in the snapshot
+	 */
+	public int indexOf(String taxonId){
+		int numericId;
+		try{
+			numericId = Integer.parseInt(taxonId);
+		}catch(NumberFormatException e){
+			return -1;
+		}
+		return indexOf(numericId);
+	}
+
+	public int indexOf(int taxonId){
+		if(taxonId < 0 || taxonId >= idToIndex.capacity() >> 2){
+			return -1;
+		}
+		return idToIndex.getInt(taxonId << 2);
+	}
+
+	public String id(int taxon){
+		return Integer.toString(taxonId(taxon));
+	}
+
+	public int taxonId(int taxon){
+		return taxonIds.getInt(taxon << 2);
+	}
+
+	/**
+	 * @return parent of the taxon or NO_PARENT for the root
+	 */
+	public int parent(int taxon){
+		return parents.getInt(taxon << 2);
+	}
+
+	public int depth(int taxon){
+		return depths.getInt(taxon << 2);
+	}
+
+	public int rankCode(int taxon){
+		return ranks.get(taxon) & 0xFF;
+	}
+
+	public String rank(int taxon){
+		return rankNames[rankCode(taxon)];
+	}
+
+	/**
+	 * @return code of the rank provided or -1 when no taxon has that rank
+	 */
+	public int rankCodeOf(String rank){
+		for (int code = 0; code < rankNames.length; code++) {
+			if(rankNames[code].equals(rank)){
+				return code;
+			}
+		}
+		return -1;
+	}
+
+	public String[] rankNames(){
+		return rankNames.clone();
+	}
+
+	public String scientificName(int taxon){
+		int start = nameOffsets.getInt(taxon << 2);
+		int end = nameOffsets.getInt((taxon + 1) << 2);
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = names.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public int childCount(int taxon){
+		return childOffsets.getInt((taxon + 1) << 2) - childOffsets.getInt(taxon << 2);
+	}
+
+	public int child(int taxon, int k){
+		return children.getInt((childOffsets.getInt(taxon << 2) + k) << 2);
+	}
+
+	/**
+	 * @return the taxon followed by all its ancestors up to the root
+	 */
+	public int[] lineage(int taxon){
+		int[] lineage = new int[depth(taxon) + 1];
+		for (int i = 0; i < lineage.length; i++) {
+			lineage[i] = taxon;
+			taxon = parent(taxon);
+		}
+		return lineage;
+	}
+
+	/**
+	 * @return size in bytes of the off-heap buffers
+	 */
+	public long sizeInBytes(){
+		long sizeInBytes = 0;
+		for (ByteBuffer buffer : buffers()){
+			sizeInBytes += buffer.capacity();
+		}
+		return sizeInBytes;
+	}
+
+	//----raw buffers, used by TaxonomyTreeCache to persist the snapshot----
+	ByteBuffer[] buffers(){
+		return new ByteBuffer[]{taxonIds, parents, depths, childOffsets, children, idToIndex, nameOffsets, ranks, names};
+	}
+
+	private static ByteBuffer intBuffer(int length){
+		return ByteBuffer.allocateDirect(length << 2);
+	}
+
+	private static int parseTaxonId(String taxonId){
+		try{
+			return Integer.parseInt(taxonId);
+		}catch(NumberFormatException e){
+			throw new IllegalStateException("The NCBI taxon ID " + taxonId + " is not numeric");
+		}
+	}
+
+	private static byte rankCode(Map<String, Integer> rankCodes, String rank){
+		String rankName = rank == null ? "" : rank;
+		Integer code = rankCodes.get(rankName);
+		if(code == null){
+			if(rankCodes.size() == MAX_RANKS){
+				throw new IllegalStateException("Too many different taxonomic ranks");
+			}
+			code = rankCodes.size();
+			rankCodes.put(rankName, code);
+		}
+		return (byte) (int) code;
+	}
+}
@@ -0,0 +1,169 @@
+/*
+Binary cache file for the TaxonomyTree snapshot.
+
+The file is stored next to the Bio4j DB folder _(`<DB folder>.ncbi_taxonomy`)_ and memory-mapped when read; the
+buffers of the snapshot are slices of the mapping, so loading it neither copies the tree nor adds it to the heap.
+It is stamped with the fingerprint of the DB folder and ignored as soon as the database changes.
+
+File layout _(big-endian)_:
+
+1. Magic number and format version (int, int)
+2. DB folder fingerprint (long)
+3. Number of taxa and number of ranks (int, int)
+4. Rank names as length-prefixed UTF-8 strings
+5. Size in bytes of every buffer of the snapshot (int[9]) followed by the buffers themselves _(taxon IDs, parents,
+depths, children offsets, children, taxon ID lookup, name offsets, rank codes and names)_
+
+ */
+package com.bio4j.examples.ncbi_taxonomy;
+
+import com.bio4j.examples.util.DBFolderFingerprint;
+import com.bio4j.titan.model.ncbiTaxonomy.TitanNCBITaxonomyGraph;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class TaxonomyTreeCache {
+
+	public static final String CACHE_FILE_SUFFIX = ".ncbi_taxonomy";
+	public static final int MAGIC_NUMBER = 0x4e544158;
+	public static final int FORMAT_VERSION = 1;
+	public static final int NUMBER_OF_BUFFERS = 9;
+
+	public static File cacheFile(String dbFolder){
+		return DBFolderFingerprint.siblingFile(dbFolder, CACHE_FILE_SUFFIX);
+	}
+
+	/**
+	 * @return the cached snapshot or null when there is no cache file or it does not match the current DB folder
+	 */
+	public static TaxonomyTree loadIfValid(String dbFolder){
+
+		File cacheFile = cacheFile(dbFolder);
+		if(!cacheFile.exists()){
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)){
+
+			//----the mapping stays valid once the channel is closed----
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if(buffer.getInt() != MAGIC_NUMBER || buffer.getInt() != FORMAT_VERSION){
+				System.out.println("Ignoring taxonomy cache file " + cacheFile.getName() + " (unknown format)");
+				return null;
+			}
+			if(buffer.getLong() != DBFolderFingerprint.compute(dbFolder)){
+				System.out.println("Ignoring taxonomy cache file " + cacheFile.getName() + " (the DB folder has changed)");
+				return null;
+			}
+
+			int size = buffer.getInt();
+			int rankCount = buffer.getInt();
+			String[] rankNames = new String[rankCount];
+			for (int i = 0; i < rankCount; i++) {
+				byte[] bytes = new byte[buffer.getInt()];
+				buffer.get(bytes);
+				rankNames[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+
+			int[] bufferSizes = new int[NUMBER_OF_BUFFERS];
+			for (int i = 0; i < NUMBER_OF_BUFFERS; i++) {
+				bufferSizes[i] = buffer.getInt();
+			}
+			ByteBuffer[] buffers = new ByteBuffer[NUMBER_OF_BUFFERS];
+			for (int i = 0; i < NUMBER_OF_BUFFERS; i++) {
+				ByteBuffer slice = buffer.slice();
+				slice.limit(bufferSizes[i]);
+				buffers[i] = slice.slice();
+				buffer.position(buffer.position() + bufferSizes[i]);
+			}
+
+			return new TaxonomyTree(size, rankNames, buffers[0], buffers[1], buffers[2], buffers[3], buffers[4],
+					buffers[5], buffers[6], buffers[7], buffers[8]);
+
+		}catch(IOException | RuntimeException e){
+			System.out.println("Ignoring taxonomy cache file " + cacheFile.getName() + " (" + e + ")");
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the snapshot to a temporary file which then replaces the cache file, so that concurrent readers never
+	 * see a partially written cache.
+	 */
+	public static void save(TaxonomyTree taxonomyTree, String dbFolder) throws IOException {
+
+		File cacheFile = cacheFile(dbFolder);
+		File tempFile = new File(cacheFile.getPath() + ".tmp");
+
+		ByteBuffer[] buffers = taxonomyTree.buffers();
+		String[] rankNames = taxonomyTree.rankNames();
+
+		try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+
+			ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+			DataOutputStream header = new DataOutputStream(headerBytes);
+			header.writeInt(MAGIC_NUMBER);
+			header.writeInt(FORMAT_VERSION);
+			header.writeLong(DBFolderFingerprint.compute(dbFolder));
+			header.writeInt(taxonomyTree.size());
+			header.writeInt(rankNames.length);
+			for (String rankName : rankNames){
+				byte[] bytes = rankName.getBytes(StandardCharsets.UTF_8);
+				header.writeInt(bytes.length);
+				header.write(bytes);
+			}
+			for (ByteBuffer buffer : buffers){
+				header.writeInt(buffer.capacity());
+			}
+			header.flush();
+
+			writeFully(channel, ByteBuffer.wrap(headerBytes.toByteArray()));
+			for (ByteBuffer buffer : buffers){
+				ByteBuffer duplicate = buffer.duplicate();
+				duplicate.clear();
+				writeFully(channel, duplicate);
+			}
+		}
+
+		Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the cached snapshot when it is valid; otherwise loads it from the NCBI taxonomy graph and refreshes the
+	 * cache file.
+	 *
+	 * @param dbFolder DB folder the cache file is stored next to, null to always load the snapshot from the graph
+	 */
+	public static TaxonomyTree loadOrBuild(String dbFolder, TitanNCBITaxonomyGraph titanNCBITaxonomyGraph){
+
+		TaxonomyTree taxonomyTree = dbFolder == null ? null : loadIfValid(dbFolder);
+		if(taxonomyTree != null){
+			System.out.println("NCBI taxonomy read from cache file " + cacheFile(dbFolder).getName());
+		}else{
+			taxonomyTree = TaxonomyTree.load(titanNCBITaxonomyGraph);
+			if(dbFolder == null){
+				return taxonomyTree;
+			}
+			try{
+				save(taxonomyTree, dbFolder);
+			}catch(IOException e){
+				System.out.println("The taxonomy cache file could not be written: " + e.getMessage());
+			}
+		}
+		return taxonomyTree;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+	}
+}
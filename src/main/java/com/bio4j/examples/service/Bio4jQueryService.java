@@ -0,0 +1,533 @@
+/*
+Local HTTP service answering Bio4j queries as JSON from a database opened once and kept warm, so that interactive
+tools do not pay for a new JVM and a new Titan instance on every query.
+
+The service is built on the HTTP server included in the JDK _(com.sun.net.httpserver)_, so it needs no further
+dependencies. Requests are served by a fixed pool of worker threads sharing the graph handlers of one Bio4jGraph; when
+all of them are busy, up to `queue size` requests wait for a free worker and any further connection waits to be
+accepted, so the load on the database stays bounded. Every worker reads through its own thread-bound transaction,
+which is released after every request. Opening the database with `-Dbio4j.preset=read_only` is recommended.
+Batch endpoints fan the lookups of their accessions out over concurrent tasks _(on virtual threads when the JVM has
+them, see LookupFanOut)_, with at most `maximum concurrent lookups` tasks reading the database at the same time across
+all requests.
+
+Endpoints _(GET only)_:
+
+* /go/annotations?accession=P12345 : GO terms annotating the protein
+* /enzyme/activities?accession=P12345 : enzymes related to the protein
+* /go/annotations/batch and /enzyme/activities/batch : the same for many proteins, given either as
+`?accessions=P12345,Q67890` or POSTed _(one accession per line, or as an `accessions` form field)_; results keep the
+order of the accessions, and the ones not found are listed apart
+* /uniref/lca?type=50&cluster=UniRef50_P12345[&min_fraction=0.9] : lowest common ancestor of the taxa of the members
+of the UniRef cluster, as computed by FindLCAOfAllUniRefClusters
+* /stats : latency histogram of every endpoint, lookup fan-out and lookup cache statistics
+
+Unknown proteins and clusters are answered with 404, bad parameters with 400, and every answer carries a JSON body
+_(`{"error": ...}` for errors)_.
+
+The service keeps running after the program returns, until the JVM is stopped, which shuts the server and the database
+down.
+
+The program expects the following parameters:
+
+1. Bio4j DB folder
+2. Port
+3. Number of worker threads _(optional, 8 by default)_
+4. Queue size _(optional, 64 by default)_
+5. Bind address _(optional, 127.0.0.1 by default)_
+6. Maximum concurrent lookups _(optional, 64 by default)_
+
+ */
+package com.bio4j.examples.service;
+
+import com.bio4j.examples.ncbi_taxonomy.TaxonomyLCAIndex;
+import com.bio4j.examples.ncbi_taxonomy.TaxonomyTree;
+import com.bio4j.examples.ncbi_taxonomy.TaxonomyTreeCache;
+import com.bio4j.examples.uniref.FindLCAOfAllUniRefClusters;
+import com.bio4j.examples.util.Bio4jGraph;
+import com.bio4j.model.enzymedb.vertices.Enzyme;
+import com.bio4j.model.go.vertices.GoTerm;
+import com.bio4j.model.uniprot.vertices.Protein;
+import com.bio4j.titan.util.DefaultTitanGraph;
+import com.era7.bioinfo.bioinfoutil.Executable;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.thinkaurelius.titan.core.TitanEdge;
+import com.thinkaurelius.titan.core.TitanVertex;
+import com.thinkaurelius.titan.core.schema.EdgeLabelMaker;
+import com.thinkaurelius.titan.core.schema.VertexLabelMaker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+public class Bio4jQueryService implements Executable{
+
+	public static final int DEFAULT_NUMBER_OF_THREADS = 8;
+	public static final int DEFAULT_QUEUE_SIZE = 64;
+	public static final String DEFAULT_BIND_ADDRESS = "127.0.0.1";
+	public static final int SHUTDOWN_DELAY_SECONDS = 2;
+	public static final int MAX_BATCH_ACCESSIONS = 100000;
+	public static final int MAX_REQUEST_BODY_BYTES = 16 * 1024 * 1024;
+	public static final String BODY_PARAMETER = "";
+
+	private final Gson gson = new Gson();
+	private final Bio4jGraph bio4jGraph;
+	private final TaxonomyLCAIndex lcaIndex;
+	private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+	private HttpServer server;
+	private ThreadPoolExecutor executor;
+	private LookupFanOut lookupFanOut;
+
+	/**
+	 * Error answered to the client with the HTTP status provided.
+	 */
+	static class QueryException extends Exception {
+
+		final int status;
+
+		QueryException(int status, String message){
+			super(message);
+			this.status = status;
+		}
+	}
+
+	interface Endpoint {
+		JsonObject query(Map<String, String> parameters) throws QueryException;
+	}
+
+	@Override
+	public void execute(ArrayList<String> array) {
+		String[] args = new String[array.size()];
+		for (int i = 0; i < array.size(); i++) {
+			args[i] = array.get(i);
+		}
+		main(args);
+	}
+
+	public static void main(String[] args){
+
+		if (args.length < 2 || args.length > 6) {
+			System.out.println("This program expects the following parameters:\n"
+					+ "1. Bio4j DB folder\n"
+					+ "2. Port\n"
+					+ "3. Number of worker threads (optional, " + DEFAULT_NUMBER_OF_THREADS + " by default)\n"
+					+ "4. Queue size (optional, " + DEFAULT_QUEUE_SIZE + " by default)\n"
+					+ "5. Bind address (optional, " + DEFAULT_BIND_ADDRESS + " by default)\n"
+					+ "6. Maximum concurrent lookups (optional, " + LookupFanOut.DEFAULT_MAX_CONCURRENT_LOOKUPS + " by default)");
+		} else {
+
+			String dbFolder = args[0];
+			int port = Integer.parseInt(args[1]);
+			int numberOfThreads = DEFAULT_NUMBER_OF_THREADS;
+			int queueSize = DEFAULT_QUEUE_SIZE;
+			String bindAddress = DEFAULT_BIND_ADDRESS;
+			int maxConcurrentLookups = LookupFanOut.DEFAULT_MAX_CONCURRENT_LOOKUPS;
+			if(args.length >= 3){
+				numberOfThreads = Integer.parseInt(args[2]);
+			}
+			if(args.length >= 4){
+				queueSize = Integer.parseInt(args[3]);
+			}
+			if(args.length >= 5){
+				bindAddress = args[4];
+			}
+			if(args.length == 6){
+				maxConcurrentLookups = Integer.parseInt(args[5]);
+			}
+
+			//-------getting the graph handlers---------------------
+			Bio4jGraph bio4jGraph = Bio4jGraph.acquire(dbFolder);
+
+			try{
+
+				System.out.println("Loading the NCBI taxonomy...");
+				//----the cache file is stored next to the DB folder, also when a properties file was provided----
+				TaxonomyTree taxonomyTree = TaxonomyTreeCache.loadOrBuild(bio4jGraph.storageDirectory(), bio4jGraph.ncbiTaxonomyGraph());
+				bio4jGraph.releaseThreadTransaction();
+				TaxonomyLCAIndex lcaIndex = new TaxonomyLCAIndex(taxonomyTree);
+				System.out.println("Done! (" + taxonomyTree.size() + " taxa)");
+
+				Bio4jQueryService service = new Bio4jQueryService(bio4jGraph, lcaIndex);
+				service.start(new InetSocketAddress(bindAddress, port), numberOfThreads, queueSize, maxConcurrentLookups);
+
+				//----the server threads keep the JVM running; the database is closed once it is being stopped----
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+					System.out.println("Stopping the query service...");
+					service.stop();
+					bio4jGraph.release();
+					System.out.println("Done ;)");
+				}));
+
+			}catch(IOException e){
+				e.printStackTrace();
+				bio4jGraph.release();
+			}
+		}
+	}
+
+	public Bio4jQueryService(Bio4jGraph bio4jGraph, TaxonomyLCAIndex lcaIndex){
+		this.bio4jGraph = bio4jGraph;
+		this.lcaIndex = lcaIndex;
+	}
+
+	/**
+	 * Starts serving requests in the background.
+	 */
+	public void start(InetSocketAddress address, int numberOfThreads, int queueSize, int maxConcurrentLookups) throws IOException {
+
+		lookupFanOut = new LookupFanOut(bio4jGraph, maxConcurrentLookups);
+
+		//----a full queue blocks the server dispatcher until a worker is free, which stops accepting connections----
+		executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueSize), (runnable, pool) -> {
+					try{
+						pool.getQueue().put(runnable);
+					}catch(InterruptedException e){
+						Thread.currentThread().interrupt();
+						throw new RejectedExecutionException(e);
+					}
+				});
+
+		server = HttpServer.create(address, queueSize);
+		server.setExecutor(executor);
+		addEndpoint(server, "/go/annotations", false, this::goAnnotations);
+		addEndpoint(server, "/go/annotations/batch", true, parameters -> batch(parameters, this::goAnnotationsOf));
+		addEndpoint(server, "/enzyme/activities", false, this::enzymeActivities);
+		addEndpoint(server, "/enzyme/activities/batch", true, parameters -> batch(parameters, this::enzymeActivitiesOf));
+		addEndpoint(server, "/uniref/lca", false, this::uniRefLCA);
+		addEndpoint(server, "/stats", false, parameters -> stats());
+
+		server.start();
+		System.out.println("Query service listening on http://" + address.getHostString() + ":" + server.getAddress().getPort()
+				+ " (" + numberOfThreads + " worker threads, queue size " + queueSize + ", at most " + maxConcurrentLookups
+				+ " concurrent lookups on " + (lookupFanOut.usingVirtualThreads() ? "virtual" : "platform") + " threads)");
+	}
+
+	/**
+	 * Stops accepting requests and waits a little for the ones being served.
+	 */
+	public void stop(){
+		server.stop(SHUTDOWN_DELAY_SECONDS);
+		executor.shutdown();
+		try{
+			executor.awaitTermination(SHUTDOWN_DELAY_SECONDS, TimeUnit.SECONDS);
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		lookupFanOut.shutdown();
+	}
+
+	/**
+	 * @param acceptsPost true when the parameters can also be POSTed, false for GET only endpoints
+	 */
+	private void addEndpoint(HttpServer server, String path, boolean acceptsPost, Endpoint endpoint){
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		synchronized (histograms){
+			histograms.put(path, histogram);
+		}
+
+		server.createContext(path, exchange -> {
+
+			long start = System.nanoTime();
+			int status = 200;
+			JsonObject body;
+
+			try{
+				boolean post = exchange.getRequestMethod().equals("POST");
+				if(!exchange.getRequestMethod().equals("GET") && !(post && acceptsPost)){
+					throw new QueryException(405, acceptsPost ? "Only GET and POST requests are supported" : "Only GET requests are supported");
+				}
+				if(!exchange.getRequestURI().getPath().equals(path)){
+					throw new QueryException(404, "Unknown endpoint " + exchange.getRequestURI().getPath());
+				}
+				Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+				if(post){
+					String requestBody = readBody(exchange);
+					String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+					if(contentType != null && contentType.startsWith("application/x-www-form-urlencoded")){
+						parameters.putAll(parameters(requestBody));
+					}else{
+						parameters.put(BODY_PARAMETER, requestBody);
+					}
+				}
+				body = endpoint.query(parameters);
+			}catch(QueryException e){
+				status = e.status;
+				body = error(e.getMessage());
+			}catch(IOException e){
+				//----e.g. the client aborted the upload of the request body----
+				status = 400;
+				body = error("The request body could not be read: " + e);
+			}catch(RuntimeException e){
+				e.printStackTrace();
+				status = 500;
+				body = error(e.toString());
+			}finally{
+				//----the work done is read-only so the transaction bound to this thread is simply closed-----
+				bio4jGraph.releaseThreadTransaction();
+			}
+
+			try{
+				send(exchange, status, body);
+			}finally{
+				histogram.record(System.nanoTime() - start, status != 200);
+			}
+		});
+	}
+
+	private JsonObject goAnnotations(Map<String, String> parameters) throws QueryException {
+		String accession = requiredParameter(parameters, "accession");
+		JsonObject result = goAnnotationsOf(accession);
+		if(result == null){
+			throw new QueryException(404, "The protein " + accession + " was not found");
+		}
+		return result;
+	}
+
+	/**
+	 * @return GO annotations of the protein or null when it was not found
+	 */
+	private JsonObject goAnnotationsOf(String accession){
+
+		Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> protein = getProtein(accession);
+		if(protein == null){
+			return null;
+		}
+
+		JsonArray goTerms = new JsonArray();
+		Optional<Stream<GoTerm<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> goTermStreamOptional = protein.goAnnotation_outV();
+		if(goTermStreamOptional.isPresent()){
+			goTermStreamOptional.get().forEach(goTerm -> {
+				JsonObject goTermJson = new JsonObject();
+				goTermJson.addProperty("id", goTerm.id());
+				goTermJson.addProperty("name", goTerm.name());
+				goTerms.add(goTermJson);
+			});
+		}
+
+		JsonObject result = new JsonObject();
+		result.addProperty("accession", accession);
+		result.add("go_terms", goTerms);
+		return result;
+	}
+
+	private JsonObject enzymeActivities(Map<String, String> parameters) throws QueryException {
+		String accession = requiredParameter(parameters, "accession");
+		JsonObject result = enzymeActivitiesOf(accession);
+		if(result == null){
+			throw new QueryException(404, "The protein " + accession + " was not found");
+		}
+		return result;
+	}
+
+	/**
+	 * @return enzymes related to the protein or null when it was not found
+	 */
+	private JsonObject enzymeActivitiesOf(String accession){
+
+		Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> protein = getProtein(accession);
+		if(protein == null){
+			return null;
+		}
+
+		JsonArray enzymes = new JsonArray();
+		Optional<Stream<Enzyme<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>>> enzymesOptionalStream = protein.enzymaticActivity_outV();
+		if(enzymesOptionalStream.isPresent()){
+			enzymesOptionalStream.get().forEach(enzyme -> {
+				JsonObject enzymeJson = new JsonObject();
+				enzymeJson.addProperty("id", enzyme.id());
+				enzymeJson.addProperty("official_name", enzyme.officialName());
+				enzymes.add(enzymeJson);
+			});
+		}
+
+		JsonObject result = new JsonObject();
+		result.addProperty("accession", accession);
+		result.add("enzymes", enzymes);
+		return result;
+	}
+
+	/**
+	 * Looks up every accession of the request through the lookup fan-out.
+	 */
+	private JsonObject batch(Map<String, String> parameters, Function<String, JsonObject> lookup) throws QueryException {
+
+		String accessionsSt = parameters.containsKey("accessions") ? parameters.get("accessions") : parameters.get(BODY_PARAMETER);
+		if(accessionsSt == null || accessionsSt.trim().isEmpty()){
+			throw new QueryException(400, "Missing parameter accessions");
+		}
+		List<String> accessions = new ArrayList<>();
+		for (String accession : accessionsSt.split("[,\\s]+")){
+			if(!accession.isEmpty()){
+				accessions.add(accession);
+			}
+		}
+		if(accessions.size() > MAX_BATCH_ACCESSIONS){
+			throw new QueryException(413, "Too many accessions: " + accessions.size() + " (at most " + MAX_BATCH_ACCESSIONS + ")");
+		}
+
+		List<JsonObject> lookupResults;
+		try{
+			lookupResults = lookupFanOut.map(accessions, LookupFanOut.DEFAULT_LOOKUPS_PER_TASK, lookup);
+		}catch(ExecutionException e){
+			throw new RuntimeException(e.getCause());
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new QueryException(503, "The request was interrupted");
+		}
+
+		JsonArray proteins = new JsonArray();
+		JsonArray notFound = new JsonArray();
+		for (int i = 0; i < accessions.size(); i++) {
+			if(lookupResults.get(i) != null){
+				proteins.add(lookupResults.get(i));
+			}else{
+				notFound.add(new JsonPrimitive(accessions.get(i)));
+			}
+		}
+
+		JsonObject result = new JsonObject();
+		result.add("proteins", proteins);
+		result.add("not_found", notFound);
+		return result;
+	}
+
+	private JsonObject uniRefLCA(Map<String, String> parameters) throws QueryException {
+
+		String clusterType = requiredParameter(parameters, "type");
+		String clusterId = requiredParameter(parameters, "cluster");
+		if(!clusterType.equals("100") && !clusterType.equals("90") && !clusterType.equals("50")){
+			throw new QueryException(400, "The cluster type must be one of: 100, 90, 50");
+		}
+		double minFraction = FindLCAOfAllUniRefClusters.DEFAULT_MIN_FRACTION;
+		if(parameters.containsKey("min_fraction")){
+			try{
+				minFraction = Double.parseDouble(parameters.get("min_fraction"));
+			}catch(NumberFormatException e){
+				throw new QueryException(400, "Bad min_fraction: " + parameters.get("min_fraction"));
+			}
+			if(minFraction <= 0 || minFraction > 1){
+				throw new QueryException(400, "The min_fraction must be in (0, 1]");
+			}
+		}
+
+		FindLCAOfAllUniRefClusters.ClusterLCAFinder lcaFinder = new FindLCAOfAllUniRefClusters.ClusterLCAFinder(bio4jGraph.titanGraph(),
+				bio4jGraph.uniRefGraph(), bio4jGraph.uniProtGraph(), lcaIndex, clusterType, minFraction,
+				bio4jGraph.lookupCache(FindLCAOfAllUniRefClusters.PROTEIN_TAXON_CACHE),
+				bio4jGraph.lookupCache(FindLCAOfAllUniRefClusters.clusterMembersCacheName(clusterType)));
+		FindLCAOfAllUniRefClusters.ClusterLCA clusterLCA = lcaFinder.findLCAs(Collections.singletonList(clusterId)).get(0);
+		if(clusterLCA.members == 0){
+			throw new QueryException(404, "The cluster " + clusterId + " was not found");
+		}
+
+		JsonObject result = new JsonObject();
+		result.addProperty("cluster_id", clusterLCA.clusterId);
+		result.addProperty("lca_taxon_id", clusterLCA.lcaTaxonId);
+		result.addProperty("lca_scientific_name", clusterLCA.lcaScientificName);
+		result.addProperty("lca_rank", clusterLCA.lcaRank);
+		result.addProperty("members", clusterLCA.members);
+		result.addProperty("members_with_taxon", clusterLCA.membersWithTaxon);
+		result.addProperty("distinct_taxa", clusterLCA.distinctTaxa);
+		result.addProperty("lca_covered_members", clusterLCA.lcaCoveredMembers);
+		return result;
+	}
+
+	private JsonObject stats(){
+
+		JsonObject endpoints = new JsonObject();
+		synchronized (histograms){
+			for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()){
+				endpoints.add(entry.getKey(), entry.getValue().toJson());
+			}
+		}
+		JsonArray caches = new JsonArray();
+		for (String statsSummary : bio4jGraph.cacheStatsSummaries()){
+			caches.add(new JsonPrimitive(statsSummary));
+		}
+
+		JsonObject result = new JsonObject();
+		result.add("endpoints", endpoints);
+		result.add("lookup_fan_out", lookupFanOut.statsJson());
+		result.add("lookup_caches", caches);
+		return result;
+	}
+
+	/**
+	 * @return the protein or null when it was not found
+	 */
+	private Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> getProtein(String accession){
+		Optional<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> proteinOptional = bio4jGraph.uniProtGraph().proteinAccessionIndex().getVertex(accession);
+		return proteinOptional.isPresent() ? proteinOptional.get() : null;
+	}
+
+	private static String readBody(HttpExchange exchange) throws IOException, QueryException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (InputStream inputStream = exchange.getRequestBody()){
+			byte[] buffer = new byte[1 << 16];
+			int read;
+			while((read = inputStream.read(buffer)) != -1){
+				body.write(buffer, 0, read);
+				if(body.size() > MAX_REQUEST_BODY_BYTES){
+					throw new QueryException(413, "The request body is larger than " + MAX_REQUEST_BODY_BYTES + " bytes");
+				}
+			}
+		}
+		return new String(body.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static String requiredParameter(Map<String, String> parameters, String name) throws QueryException {
+		String value = parameters.get(name);
+		if(value == null || value.isEmpty()){
+			throw new QueryException(400, "Missing parameter " + name);
+		}
+		return value;
+	}
+
+	private static Map<String, String> parameters(String rawQuery) throws QueryException {
+		Map<String, String> parameters = new HashMap<>();
+		if(rawQuery != null){
+			try{
+				for (String pair : rawQuery.split("&")){
+					int separator = pair.indexOf('=');
+					if(separator > 0){
+						parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+								URLDecoder.decode(pair.substring(separator + 1), "UTF-8").trim());
+					}
+				}
+			}catch(UnsupportedEncodingException | IllegalArgumentException e){
+				throw new QueryException(400, "Bad query string: " + rawQuery);
+			}
+		}
+		return parameters;
+	}
+
+	private static JsonObject error(String message){
+		JsonObject error = new JsonObject();
+		error.addProperty("error", message);
+		return error;
+	}
+
+	private void send(HttpExchange exchange, int status, JsonObject body) throws IOException {
+		byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream outputStream = exchange.getResponseBody()){
+			outputStream.write(bytes);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+Latency histogram of the requests served by an endpoint of Bio4jQueryService.
+
+Latencies are counted in buckets whose upper bounds are powers of two of microseconds _(1us, 2us, 4us... about
+18 minutes)_, so recording is a couple of atomic increments and the histogram never grows. Percentiles are reported
+as the upper bound of the bucket they fall in _(at most twice the exact value)_, capped by the maximum latency seen.
+
+ */
+package com.bio4j.examples.service;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+
+	public static final int NUMBER_OF_BUCKETS = 31;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong totalMicros = new AtomicLong();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	/**
+	 * @param error true when the request was answered with an error status
+	 */
+	public void record(long elapsedNanos, boolean error){
+
+		long micros = Math.max(0, elapsedNanos / 1000);
+		int bucket = Math.min(NUMBER_OF_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+		buckets.incrementAndGet(bucket);
+
+		count.incrementAndGet();
+		if(error){
+			errors.incrementAndGet();
+		}
+		totalMicros.addAndGet(micros);
+		maxMicros.accumulateAndGet(micros, Math::max);
+	}
+
+	public long count(){
+		return count.get();
+	}
+
+	/**
+	 * @return latency in milliseconds below which the fraction of requests provided fall
+	 */
+	public double percentileMillis(double fraction){
+
+		long total = count.get();
+		if(total == 0){
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * total));
+		long accumulated = 0;
+		for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+			accumulated += buckets.get(i);
+			if(accumulated >= rank){
+				return Math.min(bucketUpperBoundMicros(i), maxMicros.get()) / 1000.0;
+			}
+		}
+		return maxMicros.get() / 1000.0;
+	}
+
+	public JsonObject toJson(){
+
+		long total = count.get();
+		JsonObject jsonObject = new JsonObject();
+		jsonObject.addProperty("count", total);
+		jsonObject.addProperty("errors", errors.get());
+		jsonObject.addProperty("mean_ms", total == 0 ? 0 : totalMicros.get() / 1000.0 / total);
+		jsonObject.addProperty("p50_ms", percentileMillis(0.5));
+		jsonObject.addProperty("p90_ms", percentileMillis(0.9));
+		jsonObject.addProperty("p99_ms", percentileMillis(0.99));
+		jsonObject.addProperty("max_ms", maxMicros.get() / 1000.0);
+
+		//----only the buckets with some request, keyed by their upper bound----
+		JsonObject bucketsJson = new JsonObject();
+		for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+			long bucketCount = buckets.get(i);
+			if(bucketCount > 0){
+				bucketsJson.addProperty("<=" + (bucketUpperBoundMicros(i) / 1000.0) + "ms", bucketCount);
+			}
+		}
+		jsonObject.add("buckets", bucketsJson);
+
+		return jsonObject;
+	}
+
+	private static long bucketUpperBoundMicros(int bucket){
+		return 1L << bucket;
+	}
+}
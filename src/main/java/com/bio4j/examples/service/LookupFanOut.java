@@ -0,0 +1,161 @@
+/*
+Fan-out of the index lookups of a single request _(e.g. thousands of accessions)_ over many concurrent tasks, so that
+lookups blocked on BerkeleyJE disk I/O do not leave the rest of them waiting.
+
+Tasks run on virtual threads when the JVM provides them _(Java 21+, found through reflection since the tools are
+built for Java 8)_; otherwise they run on a fixed pool of platform threads. Either way, the number of tasks reading the
+database at the same time is bounded by a semaphore, so that a large request cannot flood the storage backend, and
+Titan's synchronized sections, which pin virtual threads, are entered by a bounded number of them.
+
+Fan-out is structured: `map` splits the items into tasks, waits for all of them and returns the results in item order.
+When a lookup fails, the remaining tasks stop at their next item and the failure is thrown once every task has
+finished, so no task outlives the request. Every task releases the Titan transaction bound to its thread when done.
+
+ */
+package com.bio4j.examples.service;
+
+import com.bio4j.examples.util.Bio4jGraph;
+import com.google.gson.JsonObject;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+public class LookupFanOut {
+
+	public static final int DEFAULT_MAX_CONCURRENT_LOOKUPS = 64;
+	public static final int DEFAULT_LOOKUPS_PER_TASK = 16;
+
+	private final Bio4jGraph bio4jGraph;
+	private final ExecutorService executor;
+	private final boolean virtualThreads;
+	private final int maxConcurrentLookups;
+	private final Semaphore storagePermits;
+
+	private final AtomicLong lookups = new AtomicLong();
+	private final AtomicLong tasks = new AtomicLong();
+
+	/**
+	 * @param maxConcurrentLookups maximum number of tasks reading the database at the same time, which is also the
+	 *                             size of the platform thread pool used when there are no virtual threads
+	 */
+	public LookupFanOut(Bio4jGraph bio4jGraph, int maxConcurrentLookups){
+
+		if(maxConcurrentLookups < 1){
+			throw new IllegalArgumentException("The maximum number of concurrent lookups must be at least 1: " + maxConcurrentLookups);
+		}
+
+		this.bio4jGraph = bio4jGraph;
+		this.maxConcurrentLookups = maxConcurrentLookups;
+		this.storagePermits = new Semaphore(maxConcurrentLookups);
+
+		ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+		this.virtualThreads = virtualThreadExecutor != null;
+		if(virtualThreads){
+			this.executor = virtualThreadExecutor;
+		}else{
+			AtomicInteger threadCounter = new AtomicInteger();
+			this.executor = Executors.newFixedThreadPool(maxConcurrentLookups, runnable -> {
+				Thread thread = new Thread(runnable, "bio4j-lookup-" + threadCounter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * Applies the lookup to every item concurrently.
+	 *
+	 * @param itemsPerTask number of items looked up one after the other by every task
+	 * @return results of the lookup _(null when it returned null)_ in the same order as the items
+	 */
+	public <T, R> List<R> map(List<T> items, int itemsPerTask, Function<T, R> lookup) throws InterruptedException, ExecutionException {
+
+		Object[] results = new Object[items.size()];
+		AtomicBoolean failed = new AtomicBoolean(false);
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int start = 0; start < items.size(); start += itemsPerTask) {
+			int taskStart = start;
+			int taskEnd = Math.min(start + itemsPerTask, items.size());
+			futures.add(executor.submit(() -> {
+				storagePermits.acquire();
+				try{
+					try{
+						for (int i = taskStart; i < taskEnd && !failed.get(); i++) {
+							results[i] = lookup.apply(items.get(i));
+						}
+					}catch(RuntimeException e){
+						failed.set(true);
+						throw e;
+					}finally{
+						//----the work done is read-only so the transaction bound to this thread is simply closed-----
+						bio4jGraph.releaseThreadTransaction();
+					}
+				}finally{
+					//----the permit is given back even if closing the transaction fails----
+					storagePermits.release();
+				}
+				return null;
+			}));
+		}
+		tasks.addAndGet(futures.size());
+
+		//----fan-in: every task is waited for, even after a failure----
+		ExecutionException failure = null;
+		for (Future<?> future : futures){
+			try{
+				future.get();
+			}catch(ExecutionException e){
+				if(failure == null){
+					failure = e;
+				}
+			}
+		}
+		if(failure != null){
+			throw failure;
+		}
+		lookups.addAndGet(items.size());
+
+		@SuppressWarnings("unchecked")
+		List<R> resultList = (List<R>) Arrays.asList(results);
+		return resultList;
+	}
+
+	public boolean usingVirtualThreads(){
+		return virtualThreads;
+	}
+
+	public JsonObject statsJson(){
+		JsonObject jsonObject = new JsonObject();
+		jsonObject.addProperty("virtual_threads", virtualThreads);
+		jsonObject.addProperty("max_concurrent_lookups", maxConcurrentLookups);
+		jsonObject.addProperty("lookups_in_progress", maxConcurrentLookups - storagePermits.availablePermits());
+		jsonObject.addProperty("lookups", lookups.get());
+		jsonObject.addProperty("tasks", tasks.get());
+		return jsonObject;
+	}
+
+	public void shutdown(){
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return the virtual thread executor of the JVM, or null when it does not provide one
+	 */
+	private static ExecutorService newVirtualThreadPerTaskExecutor(){
+		try{
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		}catch(ReflectiveOperationException | RuntimeException e){
+			//----older JVMs, or preview versions run without --enable-preview----
+			return null;
+		}
+	}
+}
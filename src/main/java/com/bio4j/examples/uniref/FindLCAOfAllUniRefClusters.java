@@ -0,0 +1,403 @@
+/*
+
+This program finds the lowest common ancestor _(LCA)_ for the taxonomy associated to the protein members of every
+UniRef cluster of the type provided, writing the results to a TSV file. Clusters are enumerated from the database
+itself, scanning the vertices that have the cluster ID property, unless an input file with the IDs of the clusters to
+process is provided instead.
+
+The whole NCBI taxonomy is loaded once into a TaxonomyLCAIndex shared by a pool of worker threads; the taxonomy tree
+is read from its cache file next to the DB folder when it is up to date. Cluster IDs are
+read in batches; every batch is processed by one worker, which resolves the taxa of all the distinct members of the
+batch at once and then finds the LCA of every cluster with the index. Results are written in the same order as the
+cluster IDs _(input or scan order)_ and only a bounded number of batches are kept in memory at a time.
+Taxon names and ranks are taken from the taxonomy tree. The taxon of every member is kept in a lookup cache shared by
+all the workers, since the same proteins show up in many batches _(and in the UniRef100, 90 and 50 runs of a host)_.
+The members of every cluster are kept in a lookup cache of their own for every cluster type, so that clusters
+processed again through the same graph _(repeated lists, or the LCA queries of Bio4jQueryService)_ are not probed in
+the cluster ID index once more. That cache is not used when every cluster in the database is processed, since each
+one is visited exactly once and its members would only evict the entries of other runs.
+
+When a minimum fraction below 1 is provided, the LCA of every cluster is the deepest taxon covering at least that
+fraction of the members with taxonomy _(every taxon weighted by its number of members)_ instead of the strict LCA,
+so that a few misannotated members do not drag it up to the root.
+
+It expects the following parameters:
+
+1. Bio4j DB folder
+2. UniRef cluster type (100/90/50)
+3. Input file including UniRef cluster IDs _(one ID per line)_, or `all` to process every cluster in the database
+4. Output TSV file
+5. Number of threads _(optional, 1 by default)_
+6. Number of clusters per batch _(optional, 1000 by default)_
+7. Minimum fraction of the members covered by the LCA _(optional, 1 by default: strict LCA)_
+
+ */
+package com.bio4j.examples.uniref;
+
+import com.bio4j.examples.ncbi_taxonomy.TaxonomyAlgo;
+import com.bio4j.examples.ncbi_taxonomy.TaxonomyLCAIndex;
+import com.bio4j.examples.ncbi_taxonomy.TaxonomyTree;
+import com.bio4j.examples.ncbi_taxonomy.TaxonomyTreeCache;
+import com.bio4j.examples.util.Bio4jGraph;
+import com.bio4j.examples.util.CsvWriter;
+import com.bio4j.examples.util.ExecutionFailedException;
+import com.bio4j.examples.util.LookupCache;
+import com.bio4j.model.ncbiTaxonomy.vertices.NCBITaxon;
+import com.bio4j.model.uniprot.vertices.Protein;
+import com.bio4j.model.uniref.vertices.UniRef100Cluster;
+import com.bio4j.model.uniref.vertices.UniRef50Cluster;
+import com.bio4j.model.uniref.vertices.UniRef90Cluster;
+import com.bio4j.titan.model.ncbiTaxonomy.TitanNCBITaxonomyGraph;
+import com.bio4j.titan.model.uniprot.TitanUniProtGraph;
+import com.bio4j.titan.model.uniref.TitanUniRefGraph;
+import com.bio4j.titan.util.DefaultTitanGraph;
+import com.era7.bioinfo.bioinfoutil.Executable;
+import com.thinkaurelius.titan.core.TitanEdge;
+import com.thinkaurelius.titan.core.TitanGraph;
+import com.thinkaurelius.titan.core.TitanVertex;
+import com.thinkaurelius.titan.core.schema.EdgeLabelMaker;
+import com.thinkaurelius.titan.core.schema.VertexLabelMaker;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class FindLCAOfAllUniRefClusters implements Executable{
+
+	public static final String HEADER = "CLUSTER_ID\tLCA_TAXON_ID\tLCA_SCIENTIFIC_NAME\tLCA_RANK\tMEMBERS\tMEMBERS_WITH_TAXON\tDISTINCT_TAXA\tLCA_COVERED_MEMBERS";
+	public static final int DEFAULT_NUMBER_OF_THREADS = 1;
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	public static final double DEFAULT_MIN_FRACTION = 1.0;
+	public static final String PROTEIN_TAXON_CACHE = "proteinAccessionIndex.ncbiTaxon";
+	public static final String ALL_CLUSTERS = "all";
+	public static final String CLUSTER_MEMBERS_CACHE_SUFFIX = "ClusterIdIndex.members";
+
+	@Override
+	public void execute(ArrayList<String> array) {
+		String[] args = new String[array.size()];
+		for (int i = 0; i < array.size(); i++) {
+			args[i] = array.get(i);
+		}
+		main(args);
+	}
+
+	public static void main(String[] args){
+
+		if ((args.length != 4 && args.length != 6 && args.length != 7) ||
+				(!args[1].equals("100") && !args[1].equals("90") && !args[1].equals("50"))) {
+			System.out.println("This program expects the following parameters:\n"
+					+ "1. Bio4j DB folder\n"
+					+ "2. UniRef cluster type (100,90,50)\n"
+					+ "3. Input file including UniRef cluster IDs (one ID per line), or " + ALL_CLUSTERS + " to process every cluster in the database\n"
+					+ "4. Output TSV file\n"
+					+ "5. Number of threads (optional, 1 by default)\n"
+					+ "6. Number of clusters per batch (optional, 1000 by default)\n"
+					+ "7. Minimum fraction of the members covered by the LCA (optional, 1 by default: strict LCA)");
+		} else {
+
+			String dbFolder = args[0];
+			String clusterType = args[1];
+			String inputFileSt = args[2];
+			String outputFileSt = args[3];
+			int numberOfThreads = DEFAULT_NUMBER_OF_THREADS;
+			int batchSize = DEFAULT_BATCH_SIZE;
+			double minFraction = DEFAULT_MIN_FRACTION;
+			if(args.length >= 6){
+				numberOfThreads = Integer.parseInt(args[4]);
+				batchSize = Integer.parseInt(args[5]);
+			}
+			if(args.length == 7){
+				minFraction = Double.parseDouble(args[6]);
+			}
+
+			//-------getting the graph handlers---------------------
+			Bio4jGraph bio4jGraph = Bio4jGraph.acquire(dbFolder);
+			TitanGraph titanGraph = bio4jGraph.titanGraph();
+			TitanUniRefGraph titanUniRefGraph = bio4jGraph.uniRefGraph();
+			TitanUniProtGraph titanUniProtGraph = bio4jGraph.uniProtGraph();
+			TitanNCBITaxonomyGraph titanNCBITaxonomyGraph = bio4jGraph.ncbiTaxonomyGraph();
+
+			ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+
+			boolean allClusters = inputFileSt.equals(ALL_CLUSTERS);
+
+			try (BufferedReader reader = allClusters ? null : new BufferedReader(new FileReader(new File(inputFileSt)));
+			     CsvWriter writer = new CsvWriter(new File(outputFileSt), CsvWriter.TAB)){
+
+				System.out.println("Loading the NCBI taxonomy...");
+				long startTime = System.currentTimeMillis();
+				//----the cache file is stored next to the DB folder, also when a properties file was provided----
+				TaxonomyTree taxonomyTree = TaxonomyTreeCache.loadOrBuild(bio4jGraph.storageDirectory(), titanNCBITaxonomyGraph);
+				titanGraph.rollback();
+				TaxonomyLCAIndex lcaIndex = new TaxonomyLCAIndex(taxonomyTree);
+				System.out.println("Done! (" + taxonomyTree.size() + " taxa, " + (taxonomyTree.sizeInBytes() / (1024 * 1024)) + " MB off-heap, "
+						+ (System.currentTimeMillis() - startTime) + " ms)");
+
+				//----clusters are visited exactly once when all of them are processed, so their members are not cached then----
+				LookupCache<String[]> clusterMembersCache = allClusters ? new LookupCache<>(clusterMembersCacheName(clusterType), 0) : bio4jGraph.lookupCache(clusterMembersCacheName(clusterType));
+				ClusterLCAFinder lcaFinder = new ClusterLCAFinder(titanGraph, titanUniRefGraph, titanUniProtGraph, lcaIndex, clusterType, minFraction,
+						bio4jGraph.lookupCache(PROTEIN_TAXON_CACHE), clusterMembersCache);
+
+				writer.writeLine(HEADER);
+
+				System.out.println("Finding the LCA of the clusters...");
+				startTime = System.currentTimeMillis();
+
+				//----only a bounded number of batches are submitted ahead of the writer----
+				Deque<Future<List<ClusterLCA>>> pendingBatches = new ArrayDeque<>();
+				int maxPendingBatches = numberOfThreads * 2;
+				int clusterCounter = 0;
+
+				Iterator<String> clusterIds = allClusters ? allClusterIds(titanGraph, titanUniRefGraph, clusterType) : reader.lines().iterator();
+
+				List<String> batch = new ArrayList<>(batchSize);
+				while(clusterIds.hasNext()){
+					String clusterId = clusterIds.next().trim();
+					if(!clusterId.isEmpty()){
+						batch.add(clusterId);
+					}
+					if(batch.size() == batchSize){
+						List<String> currentBatch = batch;
+						pendingBatches.add(executor.submit(() -> lcaFinder.findLCAs(currentBatch)));
+						batch = new ArrayList<>(batchSize);
+						while(pendingBatches.size() >= maxPendingBatches){
+							clusterCounter += writeResults(writer, pendingBatches.poll().get());
+							System.out.println(clusterCounter + " clusters processed...");
+						}
+					}
+				}
+				if(!batch.isEmpty()){
+					List<String> currentBatch = batch;
+					pendingBatches.add(executor.submit(() -> lcaFinder.findLCAs(currentBatch)));
+				}
+				while(!pendingBatches.isEmpty()){
+					clusterCounter += writeResults(writer, pendingBatches.poll().get());
+				}
+
+				long elapsedTime = Math.max(1, System.currentTimeMillis() - startTime);
+				System.out.println(clusterCounter + " clusters processed in " + elapsedTime + " ms ("
+						+ (clusterCounter * 1000L / elapsedTime) + " clusters/s)");
+				System.out.println("Closing output file...");
+
+			}catch(IOException | InterruptedException | ExecutionException e){
+				throw new ExecutionFailedException(FindLCAOfAllUniRefClusters.class.getSimpleName(), e);
+			}finally{
+				executor.shutdownNow();
+				bio4jGraph.release();
+			}
+
+			System.out.println("Done ;)");
+		}
+	}
+
+	private static int writeResults(CsvWriter writer, List<ClusterLCA> results) throws IOException {
+		for (ClusterLCA result : results){
+			writer.field(result.clusterId)
+					.field(result.lcaTaxonId)
+					.field(result.lcaScientificName)
+					.field(result.lcaRank)
+					.field(result.members)
+					.field(result.membersWithTaxon)
+					.field(result.distinctTaxa)
+					.field(result.lcaCoveredMembers)
+					.endRow();
+		}
+		return results.size();
+	}
+
+	/**
+	 * @return IDs of all the clusters of the type provided, read lazily while the vertices having the cluster ID
+	 * property are scanned through the transaction bound to the calling thread
+	 */
+	static Iterator<String> allClusterIds(TitanGraph titanGraph, TitanUniRefGraph titanUniRefGraph, String clusterType){
+
+		String idKey;
+		if(clusterType.equals("100")){
+			idKey = titanUniRefGraph.UniRef100Cluster().id.name();
+		}else if(clusterType.equals("90")){
+			idKey = titanUniRefGraph.UniRef90Cluster().id.name();
+		}else if(clusterType.equals("50")){
+			idKey = titanUniRefGraph.UniRef50Cluster().id.name();
+		}else{
+			throw new IllegalArgumentException("Unknown UniRef cluster type: " + clusterType);
+		}
+
+		Iterator<Vertex> vertices = titanGraph.query().has(idKey).vertices().iterator();
+		return new Iterator<String>() {
+			@Override
+			public boolean hasNext(){
+				return vertices.hasNext();
+			}
+			@Override
+			public String next(){
+				return String.valueOf(vertices.next().<Object>getProperty(idKey));
+			}
+		};
+	}
+
+	/**
+	 * @return name of the lookup cache of the members of the clusters of the type provided _(e.g. uniRef90ClusterIdIndex.members)_,
+	 * one per type since the same ID is looked up in a different index for every type
+	 */
+	public static String clusterMembersCacheName(String clusterType){
+		return "uniRef" + clusterType + CLUSTER_MEMBERS_CACHE_SUFFIX;
+	}
+
+	/**
+	 * @return the member accessions of the cluster or null when the cluster could not be found
+	 */
+	static String[] getClusterMembers(TitanUniRefGraph titanUniRefGraph, String clusterType, String clusterId){
+
+		if(clusterType.equals("100")){
+			Optional<UniRef100Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> clusterOptional = titanUniRefGraph.uniRef100ClusterIdIndex().getVertex(clusterId);
+			return clusterOptional.isPresent() ? clusterOptional.get().members() : null;
+		}else if(clusterType.equals("90")){
+			Optional<UniRef90Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> clusterOptional = titanUniRefGraph.uniRef90ClusterIdIndex().getVertex(clusterId);
+			return clusterOptional.isPresent() ? clusterOptional.get().members() : null;
+		}else if(clusterType.equals("50")){
+			Optional<UniRef50Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> clusterOptional = titanUniRefGraph.uniRef50ClusterIdIndex().getVertex(clusterId);
+			return clusterOptional.isPresent() ? clusterOptional.get().members() : null;
+		}else{
+			throw new IllegalArgumentException("Unknown UniRef cluster type: " + clusterType);
+		}
+	}
+
+	public static class ClusterLCA {
+		public String clusterId;
+		public String lcaTaxonId;
+		public String lcaScientificName;
+		public String lcaRank;
+		public int members;
+		public int membersWithTaxon;
+		public int distinctTaxa;
+		public int lcaCoveredMembers;
+	}
+
+	/**
+	 * Finds the LCA of batches of clusters; it is shared by all the worker threads and by Bio4jQueryService.
+	 */
+	public static class ClusterLCAFinder {
+
+		private final TitanGraph titanGraph;
+		private final TitanUniRefGraph titanUniRefGraph;
+		private final TitanUniProtGraph titanUniProtGraph;
+		private final TaxonomyLCAIndex lcaIndex;
+		private final String clusterType;
+		private final double minFraction;
+		private final LookupCache<String> proteinTaxonCache;
+		private final LookupCache<String[]> clusterMembersCache;
+
+		public ClusterLCAFinder(TitanGraph titanGraph,
+		                        TitanUniRefGraph titanUniRefGraph,
+		                        TitanUniProtGraph titanUniProtGraph,
+		                        TaxonomyLCAIndex lcaIndex,
+		                        String clusterType,
+		                        double minFraction,
+		                        LookupCache<String> proteinTaxonCache,
+		                        LookupCache<String[]> clusterMembersCache){
+			this.titanGraph = titanGraph;
+			this.titanUniRefGraph = titanUniRefGraph;
+			this.titanUniProtGraph = titanUniProtGraph;
+			this.lcaIndex = lcaIndex;
+			this.clusterType = clusterType;
+			this.minFraction = minFraction;
+			this.proteinTaxonCache = proteinTaxonCache;
+			this.clusterMembersCache = clusterMembersCache;
+		}
+
+		public List<ClusterLCA> findLCAs(List<String> clusterIds){
+
+			try{
+
+				//----members of all the clusters of the batch----
+				String[][] clusterMembers = new String[clusterIds.size()][];
+				Set<String> batchAccessions = new HashSet<>();
+				for (int i = 0; i < clusterIds.size(); i++) {
+					clusterMembers[i] = clusterMembersCache.get(clusterIds.get(i), clusterId -> getClusterMembers(titanUniRefGraph, clusterType, clusterId));
+					if(clusterMembers[i] != null){
+						Collections.addAll(batchAccessions, clusterMembers[i]);
+					}
+				}
+
+				//----taxon of every distinct member, resolved once per batch (and cached across batches)----
+				Map<String, Integer> accessionTaxa = new HashMap<>(batchAccessions.size() * 2);
+				for (String accession : batchAccessions){
+					String taxonId = proteinTaxonCache.get(accession, this::getProteinTaxonId);
+					if(taxonId != null){
+						int taxon = lcaIndex.taxonomyTree().indexOf(taxonId);
+						if(taxon >= 0){
+							accessionTaxa.put(accession, taxon);
+						}
+					}
+				}
+
+				List<ClusterLCA> results = new ArrayList<>(clusterIds.size());
+				for (int i = 0; i < clusterIds.size(); i++) {
+
+					ClusterLCA result = new ClusterLCA();
+					result.clusterId = clusterIds.get(i);
+
+					if(clusterMembers[i] != null){
+						result.members = clusterMembers[i].length;
+						//----number of members annotated with every taxon----
+						Map<Integer, Integer> taxonMembers = new HashMap<>();
+						for (String accession : clusterMembers[i]){
+							Integer taxon = accessionTaxa.get(accession);
+							if(taxon != null){
+								result.membersWithTaxon++;
+								taxonMembers.merge(taxon, 1, Integer::sum);
+							}
+						}
+						result.distinctTaxa = taxonMembers.size();
+
+						if(!taxonMembers.isEmpty()){
+							int[] taxaArray = new int[taxonMembers.size()];
+							int[] weights = new int[taxonMembers.size()];
+							int k = 0;
+							for (Map.Entry<Integer, Integer> entry : taxonMembers.entrySet()){
+								taxaArray[k] = entry.getKey();
+								weights[k] = entry.getValue();
+								k++;
+							}
+							TaxonomyTree taxonomyTree = lcaIndex.taxonomyTree();
+							int lowestCommonAncestor;
+							if(minFraction < 1){
+								lowestCommonAncestor = TaxonomyAlgo.weightedLowestCommonAncestor(taxaArray, weights, minFraction, taxonomyTree);
+							}else{
+								lowestCommonAncestor = lcaIndex.lowestCommonAncestor(taxaArray);
+							}
+							for (k = 0; k < taxaArray.length; k++) {
+								if(lcaIndex.lowestCommonAncestor(taxaArray[k], lowestCommonAncestor) == lowestCommonAncestor){
+									result.lcaCoveredMembers += weights[k];
+								}
+							}
+							result.lcaTaxonId = taxonomyTree.id(lowestCommonAncestor);
+							result.lcaScientificName = taxonomyTree.scientificName(lowestCommonAncestor);
+							result.lcaRank = taxonomyTree.rank(lowestCommonAncestor);
+						}
+					}else{
+						System.out.println("The cluster ID: " + result.clusterId + " was not found... :(");
+					}
+					results.add(result);
+				}
+				return results;
+
+			}finally{
+				//----the work done is read-only so the transaction bound to this thread is simply closed-----
+				titanGraph.rollback();
+			}
+		}
+
+		private String getProteinTaxonId(String accession){
+			Optional<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> proteinOptional = titanUniProtGraph.proteinAccessionIndex().getVertex(accession);
+			if(proteinOptional.isPresent()){
+				Optional<NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> taxonOptional = proteinOptional.get().proteinNCBITaxon_outV();
+				if(taxonOptional.isPresent()){
+					return taxonOptional.get().id();
+				}
+			}
+			return null;
+		}
+	}
+}
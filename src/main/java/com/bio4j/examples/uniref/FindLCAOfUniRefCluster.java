@@ -2,6 +2,7 @@
 
 This program finds the lowest common ancestor _(LCA)_ for taxonomy associated to the protein members of the UniRef
 cluster provided.
+See FindLCAOfAllUniRefClusters to process many clusters at once.
 
 It expects the following parameters:
 
@@ -13,26 +14,20 @@ It expects the following parameters:
 package com.bio4j.examples.uniref;
 
 import com.bio4j.examples.ncbi_taxonomy.TaxonomyAlgo;
+import com.bio4j.examples.util.Bio4jGraph;
 import com.bio4j.model.ncbiTaxonomy.vertices.NCBITaxon;
 import com.bio4j.model.uniprot.vertices.Protein;
 import com.bio4j.model.uniref.vertices.UniRef100Cluster;
 import com.bio4j.model.uniref.vertices.UniRef50Cluster;
 import com.bio4j.model.uniref.vertices.UniRef90Cluster;
-import com.bio4j.titan.model.ncbiTaxonomy.TitanNCBITaxonomyGraph;
 import com.bio4j.titan.model.uniprot.TitanUniProtGraph;
-import com.bio4j.titan.model.uniprot_ncbiTaxonomy.TitanUniProtNCBITaxonomyGraph;
-import com.bio4j.titan.model.uniprot_uniref.TitanUniProtUniRefGraph;
 import com.bio4j.titan.model.uniref.TitanUniRefGraph;
 import com.bio4j.titan.util.DefaultTitanGraph;
 import com.era7.bioinfo.bioinfoutil.Executable;
 import com.thinkaurelius.titan.core.TitanEdge;
-import com.thinkaurelius.titan.core.TitanFactory;
-import com.thinkaurelius.titan.core.TitanGraph;
 import com.thinkaurelius.titan.core.TitanVertex;
 import com.thinkaurelius.titan.core.schema.EdgeLabelMaker;
 import com.thinkaurelius.titan.core.schema.VertexLabelMaker;
-import org.apache.commons.configuration.BaseConfiguration;
-import org.apache.commons.configuration.Configuration;
 
 import java.util.*;
 
@@ -60,129 +55,114 @@ public class FindLCAOfUniRefCluster implements Executable{
 	        String clusterType = args[1];
 	        String clusterId = args[2];
 
-	        //----------DB configuration------------------
-	        Configuration conf = new BaseConfiguration();
-	        conf.setProperty("storage.directory", dbFolder);
-	        conf.setProperty("storage.backend", "berkeleyje");
-	        //-------creating graph handlers---------------------
-	        TitanGraph titanGraph = TitanFactory.open(conf);
-	        DefaultTitanGraph defGraph = new DefaultTitanGraph(titanGraph);
+	        //-------getting the graph handlers---------------------
+	        Bio4jGraph bio4jGraph = Bio4jGraph.acquire(dbFolder);
+	        TitanUniRefGraph titanUniRefGraph = bio4jGraph.uniRefGraph();
+	        TitanUniProtGraph titanUniProtGraph = bio4jGraph.uniProtGraph();
 
-	        System.out.println("Creating the graph managers....");
+	        try{
 
-	        //====================================================================================
-	        TitanUniRefGraph titanUniRefGraph = new TitanUniRefGraph(defGraph);
-	        TitanUniProtGraph titanUniProtGraph = new TitanUniProtGraph(defGraph);
-	        TitanNCBITaxonomyGraph titanNCBITaxonomyGraph = new TitanNCBITaxonomyGraph(defGraph);
+		        String[] membersStringArray = null;
 
-	        TitanUniProtNCBITaxonomyGraph titanUniprotNCBITaxonomyGraph = new TitanUniProtNCBITaxonomyGraph(defGraph, titanUniProtGraph, titanNCBITaxonomyGraph);
-	        TitanUniProtUniRefGraph titanUniProtUniRefGraph = new TitanUniProtUniRefGraph(defGraph, titanUniProtGraph, titanUniRefGraph);
+		        if(clusterType.equals("100")){
 
-	        titanUniRefGraph.withUniProtUniRefGraph(titanUniProtUniRefGraph);
-	        titanUniProtGraph.withUniProtUniRefGraph(titanUniProtUniRefGraph);
-	        titanUniProtGraph.withUniProtNCBITaxonomyGraph(titanUniprotNCBITaxonomyGraph);
-	        titanNCBITaxonomyGraph.withUniProtNCBITaxonomyGraph(titanUniprotNCBITaxonomyGraph);
-	        //====================================================================================
+			        Optional<UniRef100Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> uniRef100ClusterOptional = titanUniRefGraph.uniRef100ClusterIdIndex().getVertex(clusterId);
 
-	        System.out.println("Done!");
+			        if(uniRef100ClusterOptional.isPresent()){
 
-	        String[] membersStringArray = null;
+				        UniRef100Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> cluster = uniRef100ClusterOptional.get();
+				        System.out.println("cluster.id() = " + cluster.id());
+				        System.out.println("cluster.name() = " + cluster.name());
+				        System.out.println("cluster.updatedDate() = " + cluster.updatedDate());
+				        membersStringArray = cluster.members();
 
-	        if(clusterType.equals("100")){
-
-		        Optional<UniRef100Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> uniRef100ClusterOptional = titanUniRefGraph.uniRef100ClusterIdIndex().getVertex(clusterId);
-
-		        if(uniRef100ClusterOptional.isPresent()){
-
-			        UniRef100Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> cluster = uniRef100ClusterOptional.get();
-			        System.out.println("cluster.id() = " + cluster.id());
-			        System.out.println("cluster.name() = " + cluster.name());
-			        System.out.println("cluster.updatedDate() = " + cluster.updatedDate());
-			        membersStringArray = cluster.members();
-
-		        }else{
-			        System.out.println("The cluster ID: " + clusterId + " was not found... :(");
-		        }
-	        }else if(clusterType.equals("90")){
+			        }else{
+				        System.out.println("The cluster ID: " + clusterId + " was not found... :(");
+			        }
+		        }else if(clusterType.equals("90")){
 
-		        Optional<UniRef90Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> uniRef90ClusterOptional = titanUniRefGraph.uniRef90ClusterIdIndex().getVertex(clusterId);
+			        Optional<UniRef90Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> uniRef90ClusterOptional = titanUniRefGraph.uniRef90ClusterIdIndex().getVertex(clusterId);
 
-		        if(uniRef90ClusterOptional.isPresent()){
+			        if(uniRef90ClusterOptional.isPresent()){
 
-			        UniRef90Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> cluster = uniRef90ClusterOptional.get();
-			        System.out.println("cluster.id() = " + cluster.id());
-			        System.out.println("cluster.name() = " + cluster.name());
-			        System.out.println("cluster.updatedDate() = " + cluster.updatedDate());
+				        UniRef90Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> cluster = uniRef90ClusterOptional.get();
+				        System.out.println("cluster.id() = " + cluster.id());
+				        System.out.println("cluster.name() = " + cluster.name());
+				        System.out.println("cluster.updatedDate() = " + cluster.updatedDate());
 
-			        membersStringArray = cluster.members();
+				        membersStringArray = cluster.members();
 
-		        }else{
-			        System.out.println("The cluster ID: " + clusterId + " was not found... :(");
-		        }
-	        }else if(clusterType.equals("50")){
+			        }else{
+				        System.out.println("The cluster ID: " + clusterId + " was not found... :(");
+			        }
+		        }else if(clusterType.equals("50")){
 
-		        Optional<UniRef50Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> uniRef50ClusterOptional = titanUniRefGraph.uniRef50ClusterIdIndex().getVertex(clusterId);
+			        Optional<UniRef50Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> uniRef50ClusterOptional = titanUniRefGraph.uniRef50ClusterIdIndex().getVertex(clusterId);
 
-		        if(uniRef50ClusterOptional.isPresent()){
+			        if(uniRef50ClusterOptional.isPresent()){
 
-			        UniRef50Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> cluster = uniRef50ClusterOptional.get();
-			        System.out.println("cluster.id() = " + cluster.id());
-			        System.out.println("cluster.name() = " + cluster.name());
-			        System.out.println("cluster.updatedDate() = " + cluster.updatedDate());
+				        UniRef50Cluster<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> cluster = uniRef50ClusterOptional.get();
+				        System.out.println("cluster.id() = " + cluster.id());
+				        System.out.println("cluster.name() = " + cluster.name());
+				        System.out.println("cluster.updatedDate() = " + cluster.updatedDate());
 
-			        membersStringArray = cluster.members();
+				        membersStringArray = cluster.members();
 
-		        }else{
-			        System.out.println("The cluster ID: " + clusterId + " was not found... :(");
+			        }else{
+				        System.out.println("The cluster ID: " + clusterId + " was not found... :(");
+			        }
 		        }
-	        }
-
-	        if(membersStringArray != null){
 
-		        List<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> proteinMembers = new LinkedList<>();
+		        if(membersStringArray != null){
 
-		        System.out.println("Retrieving protein members...");
-		        System.out.println("membersStringArray.length = " + membersStringArray.length);
+			        List<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> proteinMembers = new LinkedList<>();
 
-		        for (String proteinId : membersStringArray){
-			        Optional<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> proteinOptional = titanUniProtGraph.proteinAccessionIndex().getVertex(proteinId);
-			        Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> protein = proteinOptional.get();
-			        System.out.println("protein.accession() = " + protein.accession());
-			        proteinMembers.add(protein);
-		        }
+			        System.out.println("Retrieving protein members...");
+			        System.out.println("membersStringArray.length = " + membersStringArray.length);
 
-		        Set<NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> taxons = new HashSet<>();
+			        for (String proteinId : membersStringArray){
+				        Optional<Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> proteinOptional = titanUniProtGraph.proteinAccessionIndex().getVertex(proteinId);
+				        if(proteinOptional.isPresent()){
+					        Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> protein = proteinOptional.get();
+					        System.out.println("protein.accession() = " + protein.accession());
+					        proteinMembers.add(protein);
+				        }else{
+					        System.out.println("The protein member: " + proteinId + " was not found... :|");
+				        }
+			        }
 
-		        System.out.println("Fetching taxonomy associated to proteins...");
-		        for (Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> protein :proteinMembers ){
-			        System.out.println("Current protein: " + protein.accession());
-			        Optional<NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> taxonOptional = protein.proteinNCBITaxon_outV();
-			        if(taxonOptional.isPresent()){
-				        NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> taxon = taxonOptional.get();
-				        taxons.add(taxon);
-				        System.out.println("NCBI taxon found: " + taxon.id() + ":" + taxon.scientificName());
+			        Set<NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> taxons = new HashSet<>();
+
+			        System.out.println("Fetching taxonomy associated to proteins...");
+			        for (Protein<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> protein :proteinMembers ){
+				        System.out.println("Current protein: " + protein.accession());
+				        Optional<NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> taxonOptional = protein.proteinNCBITaxon_outV();
+				        if(taxonOptional.isPresent()){
+					        NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> taxon = taxonOptional.get();
+					        taxons.add(taxon);
+					        System.out.println("NCBI taxon found: " + taxon.id() + ":" + taxon.scientificName());
+				        }
 			        }
-		        }
-		        System.out.println("Done!");
-		        List<NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> taxonList = new LinkedList<>();
-		        taxonList.addAll(taxons);
-		        System.out.println("Looking for the lowest common ancestor...");
-		        NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> lowestCommonAncestor = TaxonomyAlgo.lowestCommonAncestor(taxonList);
-
-		        if(lowestCommonAncestor != null){
-			        System.out.println("The lowest common ancestor is: " + lowestCommonAncestor.scientificName());
+			        System.out.println("Done!");
+			        List<NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker>> taxonList = new LinkedList<>();
+			        taxonList.addAll(taxons);
+			        System.out.println("Looking for the lowest common ancestor...");
+			        NCBITaxon<DefaultTitanGraph, TitanVertex, VertexLabelMaker, TitanEdge, EdgeLabelMaker> lowestCommonAncestor = TaxonomyAlgo.lowestCommonAncestor(taxonList);
+
+			        if(lowestCommonAncestor != null){
+				        System.out.println("The lowest common ancestor is: " + lowestCommonAncestor.scientificName());
+			        }else{
+				        System.out.println("There was no lower common ancestor found...");
+			        }
+
+
 		        }else{
-			        System.out.println("There was no lower common ancestor found...");
+			        System.out.println("There were no members found for the cluster provided... :|");
 		        }
 
-
-	        }else{
-		        System.out.println("There were no members found for the cluster provided... :|");
+	        }finally{
+	        	bio4jGraph.release();
 	        }
-
-
-	        System.out.println("Closing the database...");
-	        titanGraph.shutdown();
             System.out.println("Done ;)");
         }
 
@@ -0,0 +1,264 @@
+/*
+Set of protein accessions bounded by a memory budget, used to deduplicate proteins while they are streamed out.
+
+UniProt accessions _(up to 12 digits and upper case letters)_ are packed exactly into a long, so the set never
+holds Strings for them: new accessions go to an open addressing long[] table which grows up to the memory budget.
+Once the table is full its contents are sorted and spilled to a run file in the spill folder, which is then memory
+mapped _(off-heap)_ and binary searched by the following lookups. Runs are merged in pairs whenever the newest one is
+at least as large as the one before it, so only a logarithmic number of runs has to be searched.
+Accessions that cannot be packed _(e.g. isoforms such as P12345-2)_ are rare and kept in a plain HashSet.
+
+Run files are deleted when the set is closed.
+
+ */
+package com.bio4j.examples.util;
+
+import java.io.*;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class AccessionSet implements Closeable {
+
+	public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+	public static final long MAX_MEMORY_BUDGET = 1L << 30;
+
+	private static final int MAX_PACKED_LENGTH = 12;
+	private static final int RADIX = 37;
+	private static final int INITIAL_CAPACITY = 1 << 16;
+
+	private final File spillFolder;
+	private final int maxCapacity;
+
+	private long[] table = new long[INITIAL_CAPACITY];
+	private int tableSize = 0;
+	private final Set<String> unpackedAccessions = new HashSet<>();
+	private final List<SortedRun> runs = new ArrayList<>();
+	private int runCounter = 0;
+	private long size = 0;
+
+	/**
+	 * @param memoryBudget maximum size in bytes of the in-memory table
+	 * @param spillFolder folder the run files are written to
+	 */
+	public AccessionSet(long memoryBudget, File spillFolder){
+		if(memoryBudget < INITIAL_CAPACITY * Long.BYTES || memoryBudget > MAX_MEMORY_BUDGET){
+			throw new IllegalArgumentException("The memory budget must be between " + (INITIAL_CAPACITY * Long.BYTES) + " and " + MAX_MEMORY_BUDGET + " bytes: " + memoryBudget);
+		}
+		this.spillFolder = spillFolder;
+		this.maxCapacity = Integer.highestOneBit((int) (memoryBudget / Long.BYTES));
+	}
+
+	/**
+	 * @return true when the accession was not in the set yet
+	 */
+	public boolean add(String accession) throws IOException {
+
+		long key = pack(accession);
+		if(key == 0){
+			if(unpackedAccessions.add(accession)){
+				size++;
+				return true;
+			}
+			return false;
+		}
+
+		int mask = table.length - 1;
+		int slot = slot(key, mask);
+		while(table[slot] != 0){
+			if(table[slot] == key){
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		for (SortedRun run : runs){
+			if(run.contains(key)){
+				return false;
+			}
+		}
+
+		table[slot] = key;
+		tableSize++;
+		size++;
+
+		if(tableSize > table.length / 4 * 3){
+			if(table.length < maxCapacity){
+				resize(table.length * 2);
+			}else{
+				spill();
+			}
+		}
+		return true;
+	}
+
+	public long size(){
+		return size;
+	}
+
+	public int numberOfRuns(){
+		return runs.size();
+	}
+
+	@Override
+	public void close(){
+		for (SortedRun run : runs){
+			run.delete();
+		}
+		runs.clear();
+		table = new long[INITIAL_CAPACITY];
+		tableSize = 0;
+		unpackedAccessions.clear();
+	}
+
+	/**
+	 * @return the accession packed into a positive long, or 0 when it cannot be packed
+	 */
+	static long pack(String accession){
+		int length = accession.length();
+		if(length == 0 || length > MAX_PACKED_LENGTH){
+			return 0;
+		}
+		long key = 0;
+		for (int i = 0; i < length; i++) {
+			char c = accession.charAt(i);
+			int digit;
+			if(c >= '0' && c <= '9'){
+				digit = c - '0' + 1;
+			}else if(c >= 'A' && c <= 'Z'){
+				digit = c - 'A' + 11;
+			}else{
+				return 0;
+			}
+			key = key * RADIX + digit;
+		}
+		return key;
+	}
+
+	private static int slot(long key, int mask){
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32)) & mask;
+	}
+
+	private void resize(int capacity){
+		long[] oldTable = table;
+		table = new long[capacity];
+		int mask = capacity - 1;
+		for (long key : oldTable){
+			if(key != 0){
+				int slot = slot(key, mask);
+				while(table[slot] != 0){
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = key;
+			}
+		}
+	}
+
+	private void spill() throws IOException {
+
+		long[] keys = new long[tableSize];
+		int counter = 0;
+		for (long key : table){
+			if(key != 0){
+				keys[counter++] = key;
+			}
+		}
+		Arrays.sort(keys);
+
+		File runFile = nextRunFile();
+		try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile), 1 << 16))){
+			for (long key : keys){
+				outputStream.writeLong(key);
+			}
+		}
+		runs.add(new SortedRun(runFile, keys.length));
+
+		Arrays.fill(table, 0);
+		tableSize = 0;
+
+		//----merging runs in pairs keeps their sizes growing geometrically----
+		while(runs.size() >= 2 && runs.get(runs.size() - 1).length >= runs.get(runs.size() - 2).length){
+			SortedRun newer = runs.remove(runs.size() - 1);
+			SortedRun older = runs.remove(runs.size() - 1);
+			runs.add(merge(older, newer));
+		}
+	}
+
+	private SortedRun merge(SortedRun first, SortedRun second) throws IOException {
+
+		File runFile = nextRunFile();
+		try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile), 1 << 16))){
+			long i = 0, j = 0;
+			while(i < first.length || j < second.length){
+				if(j >= second.length || (i < first.length && first.get(i) < second.get(j))){
+					outputStream.writeLong(first.get(i++));
+				}else{
+					outputStream.writeLong(second.get(j++));
+				}
+			}
+		}
+		first.delete();
+		second.delete();
+		return new SortedRun(runFile, first.length + second.length);
+	}
+
+	private File nextRunFile(){
+		return new File(spillFolder, "accessions." + (runCounter++) + ".run");
+	}
+
+	/**
+	 * Sorted run file mapped in segments, since a single mapping cannot be larger than 2GB.
+	 */
+	private static class SortedRun {
+
+		private static final int SEGMENT_SHIFT = 27;
+		private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+		private final File file;
+		private final long length;
+		private final LongBuffer[] segments;
+
+		SortedRun(File file, long length) throws IOException {
+			this.file = file;
+			this.length = length;
+			this.segments = new LongBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+				for (int i = 0; i < segments.length; i++) {
+					long start = ((long) i << SEGMENT_SHIFT) * Long.BYTES;
+					long end = Math.min(length * Long.BYTES, start + ((long) Long.BYTES << SEGMENT_SHIFT));
+					segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start).asLongBuffer();
+				}
+			}
+		}
+
+		long get(long index){
+			return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+		}
+
+		boolean contains(long key){
+			long low = 0, high = length - 1;
+			while(low <= high){
+				long middle = (low + high) >>> 1;
+				long value = get(middle);
+				if(value < key){
+					low = middle + 1;
+				}else if(value > key){
+					high = middle - 1;
+				}else{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		void delete(){
+			try{
+				Files.deleteIfExists(file.toPath());
+			}catch(IOException e){
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -0,0 +1,366 @@
+/*
+Shared handle on a Bio4j database with all the graph managers created and wired.
+
+Opening the BerkeleyJE environment and creating the graph managers is the most expensive part of running most of the
+tools, so handles are reference counted and shared per database: `acquire` returns the handle already open for the
+same storage directory if any, and `release` only shuts the graph down once the last holder has released it. Handles
+are keyed on the canonical path of the storage directory rather than on the argument, so a properties file and the DB
+folder it points to share one Titan instance instead of opening the same BerkeleyJE environment twice.
+The database is opened and shut down outside the lock guarding the handles, so a slow open only makes the callers
+waiting for that same database wait, and a database being shut down is only opened again once it is closed. When a tool runs on its own it opens and closes the database just like before; when it runs inside the
+Bio4jExecutionHost, which holds a reference for its whole lifetime, it gets the warm instance instead.
+
+The database can be given either as a DB folder _(BerkeleyJE storage backend)_ or as a Titan `.properties` file;
+the configuration it is opened with is built by Bio4jSessionFactory. With the `read_only` preset the handle can be
+shared by any number of worker threads without synchronization: every thread reads through its own thread-bound
+transaction, which it should release with `releaseThreadTransaction` after every batch of lookups so that its
+transaction cache does not keep growing.
+
+Every handle also keeps the index lookup caches of the tools _(see LookupCache)_, which are shared by all the threads
+and jobs using the handle and sized through the session settings. Their statistics are printed when the database is
+closed.
+
+ */
+package com.bio4j.examples.util;
+
+import com.bio4j.titan.model.enzyme.TitanEnzymeDBGraph;
+import com.bio4j.titan.model.geninfo.TitanGenInfoGraph;
+import com.bio4j.titan.model.go.TitanGoGraph;
+import com.bio4j.titan.model.ncbiTaxonomy.TitanNCBITaxonomyGraph;
+import com.bio4j.titan.model.ncbiTaxonomy_geninfo.TitanNCBITaxonomyGenInfoGraph;
+import com.bio4j.titan.model.uniprot.TitanUniProtGraph;
+import com.bio4j.titan.model.uniprot_enzyme.TitanUniProtEnzymeGraph;
+import com.bio4j.titan.model.uniprot_go.TitanUniProtGoGraph;
+import com.bio4j.titan.model.uniprot_ncbiTaxonomy.TitanUniProtNCBITaxonomyGraph;
+import com.bio4j.titan.model.uniprot_uniref.TitanUniProtUniRefGraph;
+import com.bio4j.titan.model.uniref.TitanUniRefGraph;
+import com.bio4j.titan.util.DefaultTitanGraph;
+import com.thinkaurelius.titan.core.TitanGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class Bio4jGraph {
+
+	public static final String PROPERTIES_FILE_SUFFIX = ".properties";
+
+	//----open handles indexed by the canonical path of their storage directory----
+	private static final Map<String, Bio4jGraph> openGraphs = new HashMap<>();
+	//----handles being opened or shut down, which callers acquiring the same database wait for----
+	private static final Map<String, CompletableFuture<Bio4jGraph>> openingGraphs = new HashMap<>();
+	private static final Map<String, CompletableFuture<Void>> closingGraphs = new HashMap<>();
+
+	private final String key;
+	private final String database;
+	private final boolean readOnly;
+	private final Map<String, String> settings;
+	private final Map<String, LookupCache<?>> lookupCaches = new LinkedHashMap<>();
+	private int references = 0;
+
+	private final TitanGraph titanGraph;
+	private final DefaultTitanGraph defaultTitanGraph;
+
+	private final TitanUniProtGraph uniProtGraph;
+	private final TitanGoGraph goGraph;
+	private final TitanUniRefGraph uniRefGraph;
+	private final TitanNCBITaxonomyGraph ncbiTaxonomyGraph;
+	private final TitanGenInfoGraph genInfoGraph;
+	private final TitanEnzymeDBGraph enzymeDBGraph;
+
+	private final TitanUniProtGoGraph uniProtGoGraph;
+	private final TitanUniProtUniRefGraph uniProtUniRefGraph;
+	private final TitanUniProtNCBITaxonomyGraph uniProtNCBITaxonomyGraph;
+	private final TitanNCBITaxonomyGenInfoGraph ncbiTaxonomyGenInfoGraph;
+	private final TitanUniProtEnzymeGraph uniProtEnzymeGraph;
+
+	private Bio4jGraph(String key, String database, Map<String, String> settings){
+
+		this.key = key;
+		this.database = database;
+		this.settings = settings;
+		readOnly = Bio4jSessionFactory.isReadOnly(settings);
+		titanGraph = Bio4jSessionFactory.open(database, settings);
+
+		System.out.println("Creating the graph managers....");
+		defaultTitanGraph = new DefaultTitanGraph(titanGraph);
+
+		//====================================================================================
+		uniProtGraph = new TitanUniProtGraph(defaultTitanGraph);
+		goGraph = new TitanGoGraph(defaultTitanGraph);
+		uniRefGraph = new TitanUniRefGraph(defaultTitanGraph);
+		ncbiTaxonomyGraph = new TitanNCBITaxonomyGraph(defaultTitanGraph);
+		genInfoGraph = new TitanGenInfoGraph(defaultTitanGraph);
+		enzymeDBGraph = new TitanEnzymeDBGraph(defaultTitanGraph);
+
+		uniProtGoGraph = new TitanUniProtGoGraph(defaultTitanGraph, uniProtGraph, goGraph);
+		uniProtUniRefGraph = new TitanUniProtUniRefGraph(defaultTitanGraph, uniProtGraph, uniRefGraph);
+		uniProtNCBITaxonomyGraph = new TitanUniProtNCBITaxonomyGraph(defaultTitanGraph, uniProtGraph, ncbiTaxonomyGraph);
+		ncbiTaxonomyGenInfoGraph = new TitanNCBITaxonomyGenInfoGraph(defaultTitanGraph, ncbiTaxonomyGraph, genInfoGraph);
+		uniProtEnzymeGraph = new TitanUniProtEnzymeGraph(defaultTitanGraph, uniProtGraph, enzymeDBGraph);
+
+		goGraph.withUniProtGoGraph(uniProtGoGraph);
+		uniProtGraph.withUniProtGoGraph(uniProtGoGraph);
+		uniRefGraph.withUniProtUniRefGraph(uniProtUniRefGraph);
+		uniProtGraph.withUniProtUniRefGraph(uniProtUniRefGraph);
+		ncbiTaxonomyGraph.withUniProtNCBITaxonomyGraph(uniProtNCBITaxonomyGraph);
+		uniProtGraph.withUniProtNCBITaxonomyGraph(uniProtNCBITaxonomyGraph);
+		ncbiTaxonomyGraph.withNCBITaxonomyGenInfoGraph(ncbiTaxonomyGenInfoGraph);
+		genInfoGraph.withNCBITaxonomyGenInfoGraph(ncbiTaxonomyGenInfoGraph);
+		enzymeDBGraph.withUniProtEnzymeGraph(uniProtEnzymeGraph);
+		uniProtGraph.withUniProtEnzymeGraph(uniProtEnzymeGraph);
+		//====================================================================================
+	}
+
+	/**
+	 * Returns the handle already open for the database provided or opens it, adding one reference to it.
+	 * Every call must be paired with a call to release.
+	 *
+	 * @param database DB folder or Titan properties file
+	 */
+	public static Bio4jGraph acquire(String database){
+
+		Map<String, String> settings;
+		try{
+			settings = Bio4jSessionFactory.settings(database);
+		}catch(IOException e){
+			throw new UncheckedIOException("The configuration of the database " + database + " could not be read", e);
+		}
+		String storageDirectory = settings.get(Bio4jSessionFactory.STORAGE_DIRECTORY);
+		String key = canonicalPath(storageDirectory != null ? storageDirectory : database);
+
+		while(true){
+
+			CompletableFuture<Bio4jGraph> opening;
+			CompletableFuture<Void> closing;
+			boolean opener = false;
+
+			synchronized (openGraphs){
+				Bio4jGraph bio4jGraph = openGraphs.get(key);
+				if(bio4jGraph != null){
+					bio4jGraph.references++;
+					return bio4jGraph;
+				}
+				closing = closingGraphs.get(key);
+				opening = openingGraphs.get(key);
+				if(closing == null && opening == null){
+					opening = new CompletableFuture<>();
+					openingGraphs.put(key, opening);
+					opener = true;
+				}
+			}
+
+			if(closing != null){
+				//----the same BerkeleyJE environment cannot be opened again until it has been closed----
+				closing.join();
+			}else if(opener){
+				return open(key, database, settings, opening);
+			}else{
+				try{
+					opening.join();
+				}catch(CompletionException e){
+					if(e.getCause() instanceof RuntimeException){
+						throw (RuntimeException) e.getCause();
+					}
+					throw e;
+				}
+			}
+			//----the handle may have been released again in the meantime, so it is looked up once more----
+		}
+	}
+
+	/**
+	 * Opens the database outside the lock guarding the handles, completing the future other callers wait on.
+	 */
+	private static Bio4jGraph open(String key, String database, Map<String, String> settings, CompletableFuture<Bio4jGraph> opening){
+
+		Bio4jGraph bio4jGraph;
+		try{
+			bio4jGraph = new Bio4jGraph(key, database, settings);
+		}catch(RuntimeException | Error e){
+			synchronized (openGraphs){
+				openingGraphs.remove(key);
+			}
+			opening.completeExceptionally(e);
+			throw e;
+		}
+		System.out.println("Done!");
+
+		synchronized (openGraphs){
+			openingGraphs.remove(key);
+			openGraphs.put(key, bio4jGraph);
+			bio4jGraph.references++;
+		}
+		opening.complete(bio4jGraph);
+		return bio4jGraph;
+	}
+
+	/**
+	 * Removes one reference from the handle, shutting the graph down when no references are left. Otherwise the
+	 * transaction of the calling thread is rolled back so that the next job starts with a fresh one.
+	 */
+	public void release(){
+
+		CompletableFuture<Void> closing = null;
+
+		synchronized (openGraphs){
+			if(references <= 0){
+				throw new IllegalStateException("The database " + database + " has already been released");
+			}
+			if(--references == 0){
+				openGraphs.remove(key);
+				closing = new CompletableFuture<>();
+				closingGraphs.put(key, closing);
+			}
+		}
+
+		if(closing == null){
+			//----the transaction of the calling thread must not outlive the job that opened it----
+			releaseThreadTransaction();
+			return;
+		}
+
+		try{
+			printCacheStats();
+			System.out.println("Closing the database...");
+			titanGraph.shutdown();
+		}finally{
+			synchronized (openGraphs){
+				closingGraphs.remove(key);
+			}
+			closing.complete(null);
+		}
+	}
+
+	/**
+	 * Closes the transaction bound to the calling thread, if any; the next read opens a fresh one.
+	 * Nothing is ever committed, so it must only be called by threads that have not written to the graph.
+	 */
+	public void releaseThreadTransaction(){
+		titanGraph.rollback();
+	}
+
+	/**
+	 * Returns the lookup cache named as provided, creating it the first time it is asked for.
+	 * Every name must always be used with the same type of values.
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> LookupCache<V> lookupCache(String cacheName){
+		synchronized (lookupCaches){
+			LookupCache<?> lookupCache = lookupCaches.get(cacheName);
+			if(lookupCache == null){
+				lookupCache = new LookupCache<V>(cacheName, Bio4jSessionFactory.cacheMaximumSize(settings, cacheName));
+				lookupCaches.put(cacheName, lookupCache);
+			}
+			return (LookupCache<V>) lookupCache;
+		}
+	}
+
+	public void printCacheStats(){
+		for (String statsSummary : cacheStatsSummaries()){
+			System.out.println("Lookup cache " + statsSummary);
+		}
+	}
+
+	/**
+	 * @return one-line summary of the statistics of every lookup cache
+	 */
+	public List<String> cacheStatsSummaries(){
+		synchronized (lookupCaches){
+			List<String> statsSummaries = new ArrayList<>();
+			for (LookupCache<?> lookupCache : lookupCaches.values()){
+				statsSummaries.add(lookupCache.statsSummary());
+			}
+			return statsSummaries;
+		}
+	}
+
+	/**
+	 * @return DB folder or properties file the handle was first acquired with
+	 */
+	public String database(){
+		return database;
+	}
+
+	/**
+	 * @return DB folder of the database, taken from the configuration when the handle was opened with a properties
+	 * file; cache files derived from the database are stored next to it
+	 */
+	public String storageDirectory(){
+		return settings.get(Bio4jSessionFactory.STORAGE_DIRECTORY);
+	}
+
+	/**
+	 * @return true when the database was opened in read-only mode
+	 */
+	public boolean readOnly(){
+		return readOnly;
+	}
+
+	public TitanGraph titanGraph(){
+		return titanGraph;
+	}
+
+	public DefaultTitanGraph defaultTitanGraph(){
+		return defaultTitanGraph;
+	}
+
+	public TitanUniProtGraph uniProtGraph(){
+		return uniProtGraph;
+	}
+
+	public TitanGoGraph goGraph(){
+		return goGraph;
+	}
+
+	public TitanUniRefGraph uniRefGraph(){
+		return uniRefGraph;
+	}
+
+	public TitanNCBITaxonomyGraph ncbiTaxonomyGraph(){
+		return ncbiTaxonomyGraph;
+	}
+
+	public TitanGenInfoGraph genInfoGraph(){
+		return genInfoGraph;
+	}
+
+	public TitanEnzymeDBGraph enzymeDBGraph(){
+		return enzymeDBGraph;
+	}
+
+	public TitanUniProtGoGraph uniProtGoGraph(){
+		return uniProtGoGraph;
+	}
+
+	public TitanUniProtUniRefGraph uniProtUniRefGraph(){
+		return uniProtUniRefGraph;
+	}
+
+	public TitanUniProtNCBITaxonomyGraph uniProtNCBITaxonomyGraph(){
+		return uniProtNCBITaxonomyGraph;
+	}
+
+	public TitanNCBITaxonomyGenInfoGraph ncbiTaxonomyGenInfoGraph(){
+		return ncbiTaxonomyGenInfoGraph;
+	}
+
+	public TitanUniProtEnzymeGraph uniProtEnzymeGraph(){
+		return uniProtEnzymeGraph;
+	}
+
+	private static String canonicalPath(String database){
+		try{
+			return new File(database).getCanonicalPath();
+		}catch(IOException e){
+			return new File(database).getAbsolutePath();
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/*
+Builds the Titan configuration every tool opens the Bio4j database with.
+
+The configuration is made of the following layers, each one overriding the previous ones:
+
+1. The settings of a preset
+2. The properties file given with the `bio4j.properties` system property _(`-Dbio4j.properties=<file>`)_, if any
+3. The properties file given to the tool instead of a DB folder, if that is the case
+4. The DB folder given to the tool _(`storage.directory`)_
+
+A relative `storage.directory` set in a properties file is resolved against the folder of that file, the way
+`TitanFactory.open` does with a properties file, so the database opened does not depend on the working directory.
+
+The preset is chosen with the `bio4j.preset` key _(`default`, `analytics` or `read_only`)_, either as a system
+property or in any of the properties files.
+Keys starting with `bio4j.` are never passed on to Titan. Besides the preset, they set the maximum number of entries
+of the index lookup caches kept by Bio4jGraph: `bio4j.cache.maximum-size` for all of them and
+`bio4j.cache.<cache name>.maximum-size` for a single one _(0 disables a cache)_.
+
+Presets:
+
+* default: BerkeleyJE storage backend and Titan defaults, the way the tools have always opened the database.
+* analytics: meant for read-only analytics over a loaded database. Storage transactions are disabled, so BerkeleyJE
+takes no locks; Titan's DB cache is enabled with a large share of the heap and entries that never expire _(the
+database is not written while the tools run)_; BerkeleyJE keeps a smaller share of the heap for its own cache, and
+batch loading is off.
+* read_only: the analytics settings plus Titan's read-only mode, in which Titan rejects any change to the graph, so
+tools cannot write to the database by mistake. Worker threads sharing the graph each get their own thread-bound read
+transaction, with no state shared between them.
+
+Whatever the preset, Titan 0.5 opens the BerkeleyJE environment read-write, which locks the DB folder: only one JVM
+can have a DB folder open at a time, and any other one fails to open it. Tools meant to run against the same database
+at the same time should share one JVM instead _(Bio4jExecutionHost or Bio4jQueryService)_.
+
+The time needed to open the database is logged together with the preset and the number of settings used.
+
+ */
+package com.bio4j.examples.util;
+
+import com.thinkaurelius.titan.core.TitanFactory;
+import com.thinkaurelius.titan.core.TitanGraph;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+public class Bio4jSessionFactory {
+
+	public static final String PROPERTIES_SYSTEM_PROPERTY = "bio4j.properties";
+	public static final String PRESET_PROPERTY = "bio4j.preset";
+	public static final String BIO4J_PROPERTY_PREFIX = "bio4j.";
+	public static final String CACHE_PROPERTY_PREFIX = "bio4j.cache.";
+	public static final String CACHE_MAXIMUM_SIZE_SUFFIX = "maximum-size";
+	public static final long DEFAULT_CACHE_MAXIMUM_SIZE = 100000;
+
+	public static final String STORAGE_DIRECTORY = "storage.directory";
+	public static final String STORAGE_BACKEND = "storage.backend";
+	public static final String STORAGE_READ_ONLY = "storage.read-only";
+
+	public enum Preset {
+
+		DEFAULT,
+		ANALYTICS,
+		READ_ONLY;
+
+		public Map<String, String> settings(){
+
+			Map<String, String> settings = new LinkedHashMap<>();
+			settings.put(STORAGE_BACKEND, "berkeleyje");
+
+			if(this == ANALYTICS || this == READ_ONLY){
+				settings.put("storage.transactions", "false");
+				settings.put("storage.batch-loading", "false");
+				settings.put("storage.berkeleydb.cache-percentage", "30");
+				settings.put("cache.db-cache", "true");
+				settings.put("cache.db-cache-size", "0.4");
+				settings.put("cache.db-cache-time", "0");
+				settings.put("cache.tx-cache-size", "100000");
+			}
+			if(this == READ_ONLY){
+				settings.put(STORAGE_READ_ONLY, "true");
+			}
+			return settings;
+		}
+
+		public static Preset fromName(String name){
+			for (Preset preset : values()){
+				if(preset.name().equalsIgnoreCase(name.replace('-', '_'))){
+					return preset;
+				}
+			}
+			throw new IllegalArgumentException("Unknown preset " + name + ", it must be one of: default, analytics, read_only");
+		}
+	}
+
+	/**
+	 * @param database DB folder or Titan properties file
+	 * @return settings resulting from all the configuration layers, in the order they were set
+	 */
+	public static Map<String, String> settings(String database) throws IOException {
+
+		Map<String, String> overlay = new LinkedHashMap<>();
+		String propertiesFile = System.getProperty(PROPERTIES_SYSTEM_PROPERTY);
+		if(propertiesFile != null){
+			overlay.putAll(readProperties(new File(propertiesFile)));
+		}
+		boolean databaseIsPropertiesFile = database.endsWith(Bio4jGraph.PROPERTIES_FILE_SUFFIX);
+		if(databaseIsPropertiesFile){
+			overlay.putAll(readProperties(new File(database)));
+		}
+
+		String presetName = System.getProperty(PRESET_PROPERTY, overlay.get(PRESET_PROPERTY));
+		Preset preset = presetName == null ? Preset.DEFAULT : Preset.fromName(presetName.trim());
+
+		Map<String, String> settings = new LinkedHashMap<>();
+		settings.put(PRESET_PROPERTY, preset.name().toLowerCase());
+		settings.putAll(preset.settings());
+		settings.putAll(overlay);
+		if(!databaseIsPropertiesFile){
+			settings.put(STORAGE_DIRECTORY, database);
+		}
+		return settings;
+	}
+
+	/**
+	 * @param database DB folder or Titan properties file
+	 * @return DB folder the database is stored in _(null when it is not configured)_, found without opening the
+	 * database; cache files derived from the database are stored next to it
+	 */
+	public static String storageDirectory(String database) throws IOException {
+		return settings(database).get(STORAGE_DIRECTORY);
+	}
+
+	/**
+	 * @return Titan configuration made of the settings provided, leaving out the keys only meant for this class
+	 */
+	public static Configuration configuration(Map<String, String> settings){
+
+		Configuration conf = new BaseConfiguration();
+		for (Map.Entry<String, String> entry : settings.entrySet()){
+			if(!entry.getKey().startsWith(BIO4J_PROPERTY_PREFIX)){
+				conf.setProperty(entry.getKey(), entry.getValue());
+			}
+		}
+		return conf;
+	}
+
+	/**
+	 * @return true when the settings provided open the database in read-only mode
+	 */
+	public static boolean isReadOnly(Map<String, String> settings){
+		return Boolean.parseBoolean(settings.get(STORAGE_READ_ONLY));
+	}
+
+	/**
+	 * @return maximum number of entries of the lookup cache named as provided
+	 */
+	public static long cacheMaximumSize(Map<String, String> settings, String cacheName){
+		String maximumSize = settings.get(CACHE_PROPERTY_PREFIX + cacheName + "." + CACHE_MAXIMUM_SIZE_SUFFIX);
+		if(maximumSize == null){
+			maximumSize = settings.get(CACHE_PROPERTY_PREFIX + CACHE_MAXIMUM_SIZE_SUFFIX);
+		}
+		return maximumSize == null ? DEFAULT_CACHE_MAXIMUM_SIZE : Long.parseLong(maximumSize.trim());
+	}
+
+	/**
+	 * Opens the database provided with the configuration resulting from all the layers, logging the time it takes.
+	 */
+	public static TitanGraph open(String database) throws IOException {
+		return open(database, settings(database));
+	}
+
+	public static TitanGraph open(String database, Map<String, String> settings){
+
+		int titanSettings = 0;
+		for (String key : settings.keySet()){
+			if(!key.startsWith(BIO4J_PROPERTY_PREFIX)){
+				titanSettings++;
+			}
+		}
+
+		System.out.println("Opening the database " + database + " (preset " + settings.get(PRESET_PROPERTY) + ", " + titanSettings + " Titan settings)...");
+		long start = System.currentTimeMillis();
+		TitanGraph titanGraph = TitanFactory.open(configuration(settings));
+		System.out.println("Database opened in " + (System.currentTimeMillis() - start) + " ms");
+
+		return titanGraph;
+	}
+
+	/**
+	 * @return values of the properties file, with a relative storage directory resolved against the folder of the file
+	 */
+	private static Map<String, String> readProperties(File file) throws IOException {
+
+		Properties properties = new Properties();
+		try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)){
+			properties.load(reader);
+		}
+		Map<String, String> values = new LinkedHashMap<>();
+		for (String key : properties.stringPropertyNames()){
+			values.put(key, properties.getProperty(key).trim());
+		}
+		String storageDirectory = values.get(STORAGE_DIRECTORY);
+		if(storageDirectory != null && !new File(storageDirectory).isAbsolute()){
+			File folder = file.getAbsoluteFile().getParentFile();
+			values.put(STORAGE_DIRECTORY, new File(folder, storageDirectory).getAbsolutePath());
+		}
+		return values;
+	}
+}
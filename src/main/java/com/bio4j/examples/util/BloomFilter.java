@@ -0,0 +1,156 @@
+/*
+Bloom filter over a set of IDs _(protein accessions, GIs...)_, used to skip the index lookups of IDs that are
+certainly not in the database.
+
+Bits are kept in a long[] and every ID sets `numberOfHashFunctions` of them, chosen by double hashing from one 64-bit
+hash of the ID. The filter never gives false negatives, while the rate of false positives depends on the number of
+bits per ID it was sized with _(about 9.6 bits per ID for 1%)_.
+
+Besides the bits, the filter counts the lookups it skipped and the false positives reported by the tools using it
+_(IDs it let through which were not found in the database)_, so that its observed false positive rate can be
+reported next to the expected one.
+
+ */
+package com.bio4j.examples.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BloomFilter {
+
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+	private final long[] words;
+	private final long numberOfBits;
+	private final int numberOfHashFunctions;
+	private long numberOfIds;
+
+	private final AtomicLong skippedLookups = new AtomicLong();
+	private final AtomicLong falsePositives = new AtomicLong();
+
+	BloomFilter(long[] words, int numberOfHashFunctions, long numberOfIds){
+		this.words = words;
+		this.numberOfBits = (long) words.length * Long.SIZE;
+		this.numberOfHashFunctions = numberOfHashFunctions;
+		this.numberOfIds = numberOfIds;
+	}
+
+	/**
+	 * @param expectedIds number of IDs that will be added to the filter
+	 * @param falsePositiveRate false positive rate wanted once all of them have been added
+	 */
+	public static BloomFilter withExpectedIds(long expectedIds, double falsePositiveRate){
+
+		if(falsePositiveRate <= 0 || falsePositiveRate >= 1){
+			throw new IllegalArgumentException("The false positive rate must be in (0, 1): " + falsePositiveRate);
+		}
+		expectedIds = Math.max(1, expectedIds);
+
+		double bits = -expectedIds * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+		long numberOfWords = Math.max(1, (long) Math.ceil(bits / Long.SIZE));
+		if(numberOfWords > Integer.MAX_VALUE - 8){
+			throw new IllegalArgumentException("Too many IDs for a single filter: " + expectedIds);
+		}
+		int numberOfHashFunctions = Math.max(1, (int) Math.round((double) numberOfWords * Long.SIZE / expectedIds * Math.log(2)));
+
+		return new BloomFilter(new long[(int) numberOfWords], numberOfHashFunctions, 0);
+	}
+
+	public void add(CharSequence id){
+		long hash1 = hash(id);
+		long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+		for (int i = 0; i < numberOfHashFunctions; i++) {
+			long bit = Math.floorMod(hash1 + i * hash2, numberOfBits);
+			words[(int) (bit >>> 6)] |= 1L << bit;
+		}
+		numberOfIds++;
+	}
+
+	/**
+	 * @return false when the ID is certainly not in the set; true when it may be _(the lookup must be done)_
+	 */
+	public boolean mightContain(CharSequence id){
+		long hash1 = hash(id);
+		long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+		for (int i = 0; i < numberOfHashFunctions; i++) {
+			long bit = Math.floorMod(hash1 + i * hash2, numberOfBits);
+			if((words[(int) (bit >>> 6)] & (1L << bit)) == 0){
+				skippedLookups.incrementAndGet();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * To be called when an ID let through by the filter was not found in the database.
+	 */
+	public void recordFalsePositive(){
+		falsePositives.incrementAndGet();
+	}
+
+	public long numberOfIds(){
+		return numberOfIds;
+	}
+
+	public long numberOfBits(){
+		return numberOfBits;
+	}
+
+	public int numberOfHashFunctions(){
+		return numberOfHashFunctions;
+	}
+
+	public long sizeInBytes(){
+		return (long) words.length * Long.BYTES;
+	}
+
+	/**
+	 * @return false positive rate expected for the number of IDs added: (1 - e^(-kn/m))^k
+	 */
+	public double expectedFalsePositiveRate(){
+		return Math.pow(1 - Math.exp(-(double) numberOfHashFunctions * numberOfIds / numberOfBits), numberOfHashFunctions);
+	}
+
+	/**
+	 * @return fraction of the lookups of missing IDs that the filter let through, or NaN when there were none
+	 */
+	public double observedFalsePositiveRate(){
+		long skipped = skippedLookups.get();
+		long letThrough = falsePositives.get();
+		return skipped + letThrough == 0 ? Double.NaN : (double) letThrough / (skipped + letThrough);
+	}
+
+	public String summary(){
+		return String.format("%d IDs, %.1f MB, %d hash functions, %.3f%% expected false positive rate",
+				numberOfIds, sizeInBytes() / (1024.0 * 1024.0), numberOfHashFunctions, expectedFalsePositiveRate() * 100);
+	}
+
+	public String statsSummary(){
+		return String.format("%d lookups skipped, %d false positives (%.3f%% observed false positive rate)",
+				skippedLookups.get(), falsePositives.get(), observedFalsePositiveRate() * 100);
+	}
+
+	//----raw words, used by BloomFilterCache to persist the filter----
+	long[] wordsArray(){
+		return words;
+	}
+
+	private static long hash(CharSequence id){
+		//----FNV-1a over the chars followed by a 64-bit finalizer to spread the bits----
+		long hash = 0xCBF29CE484222325L;
+		for (int i = 0; i < id.length(); i++) {
+			hash ^= id.charAt(i);
+			hash *= 0x100000001B3L;
+		}
+		return mix(hash);
+	}
+
+	private static long mix(long hash){
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
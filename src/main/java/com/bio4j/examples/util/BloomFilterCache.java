@@ -0,0 +1,100 @@
+/*
+Binary file for the Bloom filters over the IDs of a Bio4j database.
+
+Every filter is stored next to the Bio4j DB folder _(`<DB folder>.<filter name>.bloom`)_ and stamped with the
+fingerprint of the DB folder, so it is ignored as soon as the database changes. Filters are optional: tools only use
+them when a valid file is found, and build them with BuildIdFilter.
+
+File layout _(big-endian)_:
+
+1. Magic number and format version (int, int)
+2. DB folder fingerprint (long)
+3. Number of IDs (long), number of hash functions (int) and number of words (int)
+4. Filter bits (long[words])
+
+ */
+package com.bio4j.examples.util;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class BloomFilterCache {
+
+	public static final String PROTEIN_ACCESSIONS = "protein_accessions";
+	public static final String GIS = "gis";
+
+	public static final String CACHE_FILE_SUFFIX = ".bloom";
+	public static final int MAGIC_NUMBER = 0x424C4F4D;
+	public static final int FORMAT_VERSION = 1;
+
+	public static File cacheFile(String dbFolder, String filterName){
+		return DBFolderFingerprint.siblingFile(dbFolder, "." + filterName + CACHE_FILE_SUFFIX);
+	}
+
+	/**
+	 * @return the filter or null when there is no filter file or it does not match the current DB folder
+	 */
+	public static BloomFilter loadIfValid(String dbFolder, String filterName){
+
+		File cacheFile = cacheFile(dbFolder, filterName);
+		if(!cacheFile.exists()){
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)){
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if(buffer.getInt() != MAGIC_NUMBER || buffer.getInt() != FORMAT_VERSION){
+				System.out.println("Ignoring filter file " + cacheFile.getName() + " (unknown format)");
+				return null;
+			}
+			if(buffer.getLong() != DBFolderFingerprint.compute(dbFolder)){
+				System.out.println("Ignoring filter file " + cacheFile.getName() + " (the DB folder has changed)");
+				return null;
+			}
+
+			long numberOfIds = buffer.getLong();
+			int numberOfHashFunctions = buffer.getInt();
+			long[] words = new long[buffer.getInt()];
+			buffer.asLongBuffer().get(words);
+
+			return new BloomFilter(words, numberOfHashFunctions, numberOfIds);
+
+		}catch(IOException | RuntimeException e){
+			System.out.println("Ignoring filter file " + cacheFile.getName() + " (" + e + ")");
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the filter to a temporary file which then replaces the filter file, so that concurrent readers never
+	 * see a partially written filter.
+	 */
+	public static void save(BloomFilter filter, String dbFolder, String filterName) throws IOException {
+
+		File cacheFile = cacheFile(dbFolder, filterName);
+		File tempFile = new File(cacheFile.getPath() + ".tmp");
+
+		try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16))){
+
+			outputStream.writeInt(MAGIC_NUMBER);
+			outputStream.writeInt(FORMAT_VERSION);
+			outputStream.writeLong(DBFolderFingerprint.compute(dbFolder));
+			outputStream.writeLong(filter.numberOfIds());
+			outputStream.writeInt(filter.numberOfHashFunctions());
+
+			long[] words = filter.wordsArray();
+			outputStream.writeInt(words.length);
+			for (long word : words){
+				outputStream.writeLong(word);
+			}
+		}
+
+		Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,118 @@
+/*
+Builds the Bloom filter over the protein accessions or GIs of a Bio4j database, which is then stored next to the DB
+folder and used by GetGOAnnotation, GetProteinEnzymaticActivity and GetProteinsAssociatedToGIs to skip the index
+lookups of IDs that are certainly not in the database.
+
+The IDs are enumerated from the database itself, scanning the vertices that have the ID property _(protein accession
+or GI)_, so the filter covers exactly the IDs loaded and never rules out one that is in the database. The scan reads
+every one of those vertices, so it takes a while on a full database, but it is only needed once per database: the
+filter is stamped with the fingerprint of the DB folder and ignored as soon as the database changes.
+The IDs found are spilled to a temporary file next to the filter while they are counted, so that the filter can be
+sized for them without scanning the database twice.
+
+The program expects the following parameters:
+
+1. Bio4j DB folder _(or Titan properties file)_
+2. Filter type: accessions | gis
+3. False positive rate _(optional, 0.01 by default)_
+
+ */
+package com.bio4j.examples.util;
+
+import com.era7.bioinfo.bioinfoutil.Executable;
+import com.tinkerpop.blueprints.Vertex;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+public class BuildIdFilter implements Executable{
+
+	public static final String ACCESSIONS_TYPE = "accessions";
+	public static final String GIS_TYPE = "gis";
+
+	@Override
+	public void execute(ArrayList<String> array) {
+		String[] args = new String[array.size()];
+		for (int i = 0; i < array.size(); i++) {
+			args[i] = array.get(i);
+		}
+		main(args);
+	}
+
+	public static void main(String[] args){
+
+		if ((args.length != 2 && args.length != 3) ||
+				(!args[1].equals(ACCESSIONS_TYPE) && !args[1].equals(GIS_TYPE))) {
+			System.out.println("This program expects the following parameters:\n"
+					+ "1. Bio4j DB folder (or Titan properties file)\n"
+					+ "2. Filter type: accessions | gis\n"
+					+ "3. False positive rate (optional, 0.01 by default)");
+		} else {
+
+			String database = args[0];
+			boolean accessions = args[1].equals(ACCESSIONS_TYPE);
+			String filterName = accessions ? BloomFilterCache.PROTEIN_ACCESSIONS : BloomFilterCache.GIS;
+			double falsePositiveRate = BloomFilter.DEFAULT_FALSE_POSITIVE_RATE;
+			if(args.length == 3){
+				falsePositiveRate = Double.parseDouble(args[2]);
+			}
+
+			//-------getting the graph handlers---------------------
+			Bio4jGraph bio4jGraph = Bio4jGraph.acquire(database);
+			String dbFolder = bio4jGraph.storageDirectory();
+			File idsFile = null;
+
+			try{
+
+				File filterFile = BloomFilterCache.cacheFile(dbFolder, filterName);
+				String idKey = accessions ? bio4jGraph.uniProtGraph().Protein().accession.name() : bio4jGraph.genInfoGraph().GenInfo().id.name();
+
+				//----first pass: enumerating the IDs from the database, counting them so that the filter is sized for them----
+				System.out.println("Enumerating the IDs of the database (" + idKey + ")...");
+				idsFile = File.createTempFile(filterFile.getName() + ".", ".ids", filterFile.getAbsoluteFile().getParentFile());
+				long numberOfIds = 0;
+				try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(idsFile), StandardCharsets.UTF_8), 1 << 20)){
+					for (Vertex vertex : bio4jGraph.titanGraph().query().has(idKey).vertices()){
+						Object id = vertex.getProperty(idKey);
+						if(id != null){
+							writer.write(id.toString());
+							writer.newLine();
+							numberOfIds++;
+							if(numberOfIds % 1000000 == 0){
+								System.out.println(numberOfIds + " IDs found...");
+							}
+						}
+					}
+				}finally{
+					//----the scan is read-only so the transaction bound to this thread is simply closed-----
+					bio4jGraph.releaseThreadTransaction();
+				}
+				System.out.println("Done! (" + numberOfIds + " IDs)");
+
+				System.out.println("Building the filter...");
+				BloomFilter filter = BloomFilter.withExpectedIds(numberOfIds, falsePositiveRate);
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(idsFile), StandardCharsets.UTF_8), 1 << 20)){
+					String line;
+					while((line = reader.readLine()) != null){
+						filter.add(line);
+					}
+				}
+				System.out.println("Done! (" + filter.summary() + ")");
+
+				System.out.println("Writing filter file " + filterFile.getName() + "...");
+				BloomFilterCache.save(filter, dbFolder, filterName);
+
+			}catch(IOException e){
+				throw new ExecutionFailedException(BuildIdFilter.class.getSimpleName(), e);
+			}finally{
+				if(idsFile != null && !idsFile.delete()){
+					System.out.println("The temporary file " + idsFile.getAbsolutePath() + " could not be removed");
+				}
+				bio4jGraph.release();
+			}
+
+			System.out.println("Done ;)");
+		}
+	}
+}
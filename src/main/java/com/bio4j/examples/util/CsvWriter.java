@@ -0,0 +1,210 @@
+/*
+Writer for CSV _(or any other single-character separated)_ files.
+
+Fields are escaped following RFC 4180: they are quoted only when they include the separator, double quotes or line
+breaks, and double quotes inside them are doubled. Null values are written as empty fields.
+Rows are written field by field straight into a large buffered writer through a reusable char buffer, so writing a
+row does not allocate any intermediate Strings. List-like values _(e.g. "[a|b|c]")_ can be written as composite
+fields, whose items are accumulated in a reusable buffer and escaped as a whole once the field is complete.
+
+ */
+package com.bio4j.examples.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+public class CsvWriter implements Closeable {
+
+	public static final char COMMA = ',';
+	public static final char TAB = '\t';
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	private final Writer writer;
+	private final char separator;
+	private final boolean escapeFields;
+
+	private final StringBuilder fieldBuffer = new StringBuilder(256);
+	private char[] chars = new char[256];
+	private boolean firstField = true;
+
+	private boolean insideCompositeField = false;
+	private String itemSeparator;
+	private String compositeFieldEnd;
+	private boolean firstItem;
+
+	/**
+	 * @param escapeFields when false fields are written as they are _(for formats such as TSV where values are known
+	 *                     not to include separators)_
+	 */
+	public CsvWriter(Writer writer, char separator, boolean escapeFields){
+		this.writer = writer;
+		this.separator = separator;
+		this.escapeFields = escapeFields;
+	}
+
+	public CsvWriter(Writer writer, char separator){
+		this(writer, separator, true);
+	}
+
+	public CsvWriter(File file, char separator) throws IOException {
+		this(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), DEFAULT_BUFFER_SIZE), separator);
+	}
+
+	public CsvWriter(File file) throws IOException {
+		this(file, COMMA);
+	}
+
+	/**
+	 * Writes a line as it is, for instance a header.
+	 */
+	public CsvWriter writeLine(String line) throws IOException {
+		writer.write(line);
+		writer.write('\n');
+		return this;
+	}
+
+	public CsvWriter field(CharSequence value) throws IOException {
+		startField();
+		writeEscaped(value);
+		return this;
+	}
+
+	public CsvWriter field(long value) throws IOException {
+		startField();
+		fieldBuffer.setLength(0);
+		fieldBuffer.append(value);
+		writeEscaped(fieldBuffer);
+		return this;
+	}
+
+	public CsvWriter field(double value) throws IOException {
+		startField();
+		fieldBuffer.setLength(0);
+		fieldBuffer.append(value);
+		writeEscaped(fieldBuffer);
+		return this;
+	}
+
+	/**
+	 * Starts a field made of a list of items, e.g. beginCompositeField("[", "|", "]") for "[a|b|c]".
+	 */
+	public CsvWriter beginCompositeField(String start, String itemSeparator, String end) throws IOException {
+		if(insideCompositeField){
+			throw new IllegalStateException("Composite fields cannot be nested");
+		}
+		startField();
+		insideCompositeField = true;
+		this.itemSeparator = itemSeparator;
+		this.compositeFieldEnd = end;
+		firstItem = true;
+		fieldBuffer.setLength(0);
+		fieldBuffer.append(start);
+		return this;
+	}
+
+	public CsvWriter item(CharSequence value){
+		startItem();
+		fieldBuffer.append(value);
+		return this;
+	}
+
+	/**
+	 * Adds an item made of two values joined by the separator provided, e.g. "accession:name".
+	 */
+	public CsvWriter item(CharSequence first, char joiner, CharSequence second){
+		startItem();
+		fieldBuffer.append(first).append(joiner).append(second);
+		return this;
+	}
+
+	public CsvWriter endCompositeField() throws IOException {
+		if(!insideCompositeField){
+			throw new IllegalStateException("There is no composite field to end");
+		}
+		insideCompositeField = false;
+		fieldBuffer.append(compositeFieldEnd);
+		writeEscaped(fieldBuffer);
+		return this;
+	}
+
+	public CsvWriter endRow() throws IOException {
+		if(insideCompositeField){
+			throw new IllegalStateException("The current composite field has not been ended");
+		}
+		writer.write('\n');
+		firstField = true;
+		return this;
+	}
+
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	private void startField() throws IOException {
+		if(insideCompositeField){
+			throw new IllegalStateException("The current composite field has not been ended");
+		}
+		if(!firstField){
+			writer.write(separator);
+		}
+		firstField = false;
+	}
+
+	private void startItem(){
+		if(!insideCompositeField){
+			throw new IllegalStateException("Items can only be added to composite fields");
+		}
+		if(!firstItem){
+			fieldBuffer.append(itemSeparator);
+		}
+		firstItem = false;
+	}
+
+	private void writeEscaped(CharSequence value) throws IOException {
+
+		if(value == null){
+			return;
+		}
+
+		int length = value.length();
+		boolean quote = false;
+		int quoteCount = 0;
+		if(escapeFields){
+			for (int i = 0; i < length; i++) {
+				char c = value.charAt(i);
+				if(c == '"'){
+					quote = true;
+					quoteCount++;
+				}else if(c == separator || c == '\n' || c == '\r'){
+					quote = true;
+				}
+			}
+		}
+
+		int size = length + quoteCount + (quote ? 2 : 0);
+		if(size > chars.length){
+			chars = new char[Math.max(size, chars.length * 2)];
+		}
+
+		int position = 0;
+		if(quote){
+			chars[position++] = '"';
+		}
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if(c == '"' && quote){
+				chars[position++] = '"';
+			}
+			chars[position++] = c;
+		}
+		if(quote){
+			chars[position++] = '"';
+		}
+		writer.write(chars, 0, position);
+	}
+}
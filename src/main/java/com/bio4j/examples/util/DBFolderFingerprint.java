@@ -0,0 +1,51 @@
+/*
+Fingerprint of a Bio4j BerkeleyJE DB folder, used to invalidate the cache files derived from the database.
+
+The fingerprint covers the names of all the BerkeleyJE log files _(.jdb)_ plus the size and modification date of all
+of them except the newest one. Opening the environment appends checkpoints to the newest log file, so including it
+would invalidate the caches every time any tool opens the database, while loading a new Bio4j release replaces the
+whole set of log files.
+
+ */
+package com.bio4j.examples.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class DBFolderFingerprint {
+
+	public static final String BERKELEYJE_LOG_FILE_SUFFIX = ".jdb";
+
+	public static long compute(String dbFolder) throws IOException {
+		return compute(new File(dbFolder));
+	}
+
+	public static long compute(File dbFolder) throws IOException {
+
+		File[] logFiles = dbFolder.listFiles((dir, name) -> name.endsWith(BERKELEYJE_LOG_FILE_SUFFIX));
+		if(logFiles == null){
+			throw new IOException("The Bio4j DB folder " + dbFolder.getAbsolutePath() + " could not be read");
+		}
+		//----BerkeleyJE log file names are zero-padded hexadecimal numbers so they sort chronologically----
+		Arrays.sort(logFiles);
+
+		long fingerprint = 1125899906842597L;
+		for (int i = 0; i < logFiles.length; i++) {
+			fingerprint = 31 * fingerprint + logFiles[i].getName().hashCode();
+			if(i < logFiles.length - 1){
+				fingerprint = 31 * fingerprint + logFiles[i].length();
+				fingerprint = 31 * fingerprint + logFiles[i].lastModified();
+			}
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * @return file named after the DB folder with the suffix provided, placed next to it _(not inside it)_
+	 */
+	public static File siblingFile(String dbFolder, String suffix){
+		File folder = new File(dbFolder).getAbsoluteFile();
+		return new File(folder.getParentFile(), folder.getName() + suffix);
+	}
+}
@@ -0,0 +1,17 @@
+/*
+Unchecked exception thrown by the programs of this repository when they fail.
+
+Programs are run through the Executable interface, whose `execute` method cannot throw checked exceptions, so the
+cause is wrapped in this exception instead of being printed and swallowed. That way the ParallelExecutionScheduler
+_(and so Bio4jExecutionHost)_ skips the executions depending on a failed one, and a program run from the command line
+exits with a non-zero status.
+
+ */
+package com.bio4j.examples.util;
+
+public class ExecutionFailedException extends RuntimeException {
+
+	public ExecutionFailedException(String program, Throwable cause){
+		super(program + " failed: " + cause, cause);
+	}
+}
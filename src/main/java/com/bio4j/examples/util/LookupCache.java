@@ -0,0 +1,74 @@
+/*
+Size-bounded cache placed in front of the lookups done through the Titan indexes _(e.g. `goTermIdIndex`,
+`proteinAccessionIndex`)_.
+
+Titan vertices belong to the transaction they were read in, so the cache never holds vertices: it maps the index key
+to the values the tools read from the vertex found _(term names, taxon IDs...)_, which can be shared by any thread
+and outlive the transaction. Keys with no vertex are cached as well, so that missing IDs are not probed again.
+
+Eviction is handled by Caffeine _(W-TinyLFU)_, and hit, miss and eviction counts are recorded for every cache.
+A cache with a maximum size of 0 is disabled: every lookup goes straight to the loader.
+
+ */
+package com.bio4j.examples.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+public class LookupCache<V> {
+
+	private final String name;
+	private final long maximumSize;
+	private final Cache<String, Optional<V>> cache;
+
+	public LookupCache(String name, long maximumSize){
+		this.name = name;
+		this.maximumSize = maximumSize;
+		if(maximumSize > 0){
+			this.cache = Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build();
+		}else{
+			this.cache = null;
+		}
+	}
+
+	/**
+	 * @param loader finds the value of a key in the database, returning null when there is none
+	 * @return the value of the key provided or null when there is none
+	 */
+	public V get(String key, Function<String, V> loader){
+		if(cache == null){
+			return loader.apply(key);
+		}
+		return cache.get(key, missingKey -> Optional.ofNullable(loader.apply(missingKey))).orElse(null);
+	}
+
+	public String name(){
+		return name;
+	}
+
+	public long size(){
+		return cache == null ? 0 : cache.estimatedSize();
+	}
+
+	public void invalidateAll(){
+		if(cache != null){
+			cache.invalidateAll();
+		}
+	}
+
+	/**
+	 * @return one-line summary of the cache size and its hit, miss and eviction counts
+	 */
+	public String statsSummary(){
+		if(cache == null){
+			return name + ": disabled";
+		}
+		CacheStats stats = cache.stats();
+		return String.format("%s: %d/%d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+				name, cache.estimatedSize(), maximumSize, stats.hitCount(), stats.missCount(), stats.hitRate() * 100, stats.evictionCount());
+	}
+}
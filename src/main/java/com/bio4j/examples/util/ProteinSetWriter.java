@@ -0,0 +1,110 @@
+/*
+Streaming writer of ProteinSet JSON files.
+
+Proteins are serialized one by one into the `proteins` array of the set as soon as they are written, so the output
+is the same JSON ProteinSet the tools have always produced without the whole set ever being held in memory.
+Proteins are deduplicated by accession through an AccessionSet, whose run files are written to a temporary folder
+next to the output file and deleted together with it when the writer is closed.
+
+The set is only terminated once `finish` has been called. A writer closed without being finished _(because resolving
+the proteins failed)_ deletes its output, so a partial set is never left behind looking like a complete one.
+
+ */
+package com.bio4j.examples.util;
+
+import com.bio4j.json.uniprot.Protein;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class ProteinSetWriter implements Closeable {
+
+	public static final String PROTEINS_FIELD = "proteins";
+
+	private final Gson gson = new Gson();
+	private final File outputFile;
+	private final JsonWriter jsonWriter;
+	private final File spillFolder;
+	private final AccessionSet accessionSet;
+	private long proteinsWritten = 0;
+	private long duplicatesSkipped = 0;
+	private boolean finished = false;
+
+	/**
+	 * @param memoryBudget maximum size in bytes of the in-memory part of the accession set
+	 */
+	public ProteinSetWriter(File outputFile, long memoryBudget) throws IOException {
+
+		this.outputFile = outputFile;
+		File outputFolder = outputFile.getAbsoluteFile().getParentFile();
+		this.spillFolder = Files.createTempDirectory(outputFolder.toPath(), outputFile.getName() + ".").toFile();
+		this.accessionSet = new AccessionSet(memoryBudget, spillFolder);
+
+		this.jsonWriter = new JsonWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8), 1 << 16));
+		jsonWriter.setIndent("  ");
+		jsonWriter.beginObject();
+		jsonWriter.name(PROTEINS_FIELD);
+		jsonWriter.beginArray();
+	}
+
+	/**
+	 * @return true when the protein was written, false when a protein with the same accession already was
+	 */
+	public boolean write(Protein protein) throws IOException {
+		if(!accessionSet.add(protein.getAccession())){
+			duplicatesSkipped++;
+			return false;
+		}
+		gson.toJson(protein, Protein.class, jsonWriter);
+		proteinsWritten++;
+		return true;
+	}
+
+	public long proteinsWritten(){
+		return proteinsWritten;
+	}
+
+	public long duplicatesSkipped(){
+		return duplicatesSkipped;
+	}
+
+	public String summary(){
+		return proteinsWritten + " proteins written, " + duplicatesSkipped + " duplicates skipped, "
+				+ accessionSet.numberOfRuns() + " accession runs on disk";
+	}
+
+	/**
+	 * Terminates the set once all its proteins have been written.
+	 */
+	public void finish() throws IOException {
+		jsonWriter.endArray();
+		jsonWriter.endObject();
+		jsonWriter.close();
+		finished = true;
+	}
+
+	/**
+	 * Removes the accession runs; the output is deleted as well unless the writer was finished.
+	 */
+	@Override
+	public void close() throws IOException {
+		try{
+			if(!finished){
+				try{
+					jsonWriter.close();
+				}catch(IOException e){
+					//----JsonWriter closes the stream before complaining that the document is incomplete, as intended here----
+				}
+				if(outputFile.exists() && !outputFile.delete()){
+					System.out.println("The incomplete output file " + outputFile.getAbsolutePath() + " could not be removed");
+				}
+			}
+		}finally{
+			accessionSet.close();
+			Files.deleteIfExists(spillFolder.toPath());
+		}
+	}
+}